@@ -0,0 +1,114 @@
+package com.skplanet.nlp.benchmark;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares two JMH result files written with {@code -rf csv -rff <file>}<br>
+ * <br>
+ * usage: BenchmarkCompare baseline.csv candidate.csv [threshold %, default 10]<br>
+ * <br>
+ * prints the change of every benchmark found in both files and exits with 1
+ * if any of them got worse by more than the threshold, so it can gate a release build.<br>
+ */
+public class BenchmarkCompare {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: BenchmarkCompare baseline.csv candidate.csv [threshold %]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+
+        Map<String, String[]> baseline = read(args[0]);
+        Map<String, String[]> candidate = read(args[1]);
+
+        int regressions = 0;
+        System.out.println(String.format("%-70s %14s %14s %9s", "benchmark", "baseline", "candidate", "change"));
+        for (Map.Entry<String, String[]> entry : candidate.entrySet()) {
+            String[] before = baseline.get(entry.getKey());
+            if (before == null) {
+                continue;
+            }
+            String[] after = entry.getValue();
+            double old = Double.parseDouble(before[4]);
+            double now = Double.parseDouble(after[4]);
+
+            // throughput : higher is better, all the time based modes : lower is better
+            boolean higherIsBetter = "thrpt".equals(after[1]);
+            double change = old == 0 ? 0 : (now - old) / old * 100.0;
+            double worse = higherIsBetter ? -change : change;
+
+            String mark = "";
+            if (worse > threshold) {
+                mark = "  <-- REGRESSION";
+                regressions++;
+            }
+            System.out.println(String.format("%-70s %14.3f %14.3f %+8.1f%%%s",
+                    entry.getKey(), old, now, change, mark));
+        }
+
+        if (regressions > 0) {
+            System.out.println(regressions + " regression(s) over " + threshold + "%");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Read a JMH csv result file
+     * @return columns by benchmark name, mode, threads and parameters
+     */
+    private static Map<String, String[]> read(String file) throws IOException {
+        Map<String, String[]> rows = new LinkedHashMap<String, String[]>();
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            String[] header = split(reader.readLine());
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().length() == 0) {
+                    continue;
+                }
+                String[] cols = split(line);
+                StringBuilder key = new StringBuilder(cols[0]).append(" ").append(cols[1]).append(" t=").append(cols[2]);
+                // "Param: xxx" columns follow "Unit"
+                for (int i = 7; i < cols.length && i < header.length; i++) {
+                    if (cols[i].length() == 0) {
+                        continue;
+                    }
+                    key.append(" ").append(header[i].replace("Param: ", "")).append("=").append(cols[i]);
+                }
+                rows.put(key.toString(), cols);
+            }
+        } finally {
+            reader.close();
+        }
+        return rows;
+    }
+
+    /**
+     * Split a csv line, JMH quotes every text column
+     */
+    private static String[] split(String line) {
+        List<String> cols = new ArrayList<String>();
+        StringBuilder col = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                cols.add(col.toString());
+                col.setLength(0);
+            } else {
+                col.append(c);
+            }
+        }
+        cols.add(col.toString());
+        return cols.toArray(new String[cols.size()]);
+    }
+}
@@ -0,0 +1,57 @@
+package com.skplanet.nlp.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * Sample properties files for the benchmarks<br>
+ */
+final class BenchmarkFiles {
+
+    private BenchmarkFiles() {
+    }
+
+    /**
+     * Create an empty temporary directory, deleted on exit
+     * @return directory
+     */
+    static File createDir() throws IOException {
+        File dir = File.createTempFile("omp-config-bench", "");
+        if (!dir.delete() || !dir.mkdir()) {
+            throw new IOException("can't create directory : " + dir);
+        }
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    /**
+     * Write a properties file with {@code entries} fields named by {@link #field(int)}
+     * @param dir directory
+     * @param name file name
+     * @param entries number of fields
+     * @return the file
+     */
+    static File write(File dir, String name, int entries) throws IOException {
+        File file = new File(dir, name);
+        file.deleteOnExit();
+        BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+        try {
+            for (int i = 0; i < entries; i++) {
+                writer.write(field(i) + "=" + value(i) + "\n");
+            }
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+
+    static String field(int i) {
+        return "analyzer.resource.field" + i;
+    }
+
+    static String value(int i) {
+        return "/data/nlp/resource/model/shard" + i + ".bin";
+    }
+}
@@ -0,0 +1,111 @@
+package com.skplanet.nlp.benchmark;
+
+import com.skplanet.nlp.config.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Configuration#loadProperties(String, int)} in all the load modes<br>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LoadBenchmark {
+
+    private static final String NAME = "bench.properties";
+
+    @Param({"10", "1000", "100000"})
+    public int entries;
+
+    private File file;
+    private ClassLoader loader;
+    private String hdfsName;
+    private Configuration config;
+
+    /**
+     * Touches the file before every invocation, so HDFS loads can't skip the download
+     */
+    @State(Scope.Thread)
+    public static class Modified {
+        private long time = 1000000000000L;
+
+        @Setup(Level.Invocation)
+        public void touch(LoadBenchmark bench) {
+            time += 1000;
+            bench.file.setLastModified(time);
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        File dir = BenchmarkFiles.createDir();
+        this.file = BenchmarkFiles.write(dir, NAME, this.entries);
+        this.loader = new URLClassLoader(new URL[]{dir.toURI().toURL()}, null);
+        this.hdfsName = LocalHdfsStandIn.PREFIX + this.file.getAbsolutePath();
+
+        this.config = Configuration.newInstance();
+        this.config.setHadoopConfiguration(LocalHdfsStandIn.conf());
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.config.shutdown();
+    }
+
+    @Benchmark
+    public Configuration classpath() throws IOException {
+        Thread current = Thread.currentThread();
+        ClassLoader saved = current.getContextClassLoader();
+        current.setContextClassLoader(this.loader);
+        try {
+            this.config.loadProperties(NAME, Configuration.CLASSPATH_LOAD);
+        } finally {
+            current.setContextClassLoader(saved);
+        }
+        return this.config;
+    }
+
+    @Benchmark
+    public Configuration physicalPath() throws IOException {
+        this.config.loadProperties(this.file.getPath(), Configuration.PHYSICALPATH_LOAD);
+        return this.config;
+    }
+
+    @Benchmark
+    public Configuration mappedPhysicalPath() throws IOException {
+        this.config.loadProperties(this.file.getPath(), Configuration.MAPPED_PHYSICALPATH_LOAD);
+        return this.config;
+    }
+
+    @Benchmark
+    public Configuration hdfsPath(Modified modified) throws IOException {
+        this.config.loadProperties(this.hdfsName, Configuration.HDFSPATH_LOAD);
+        return this.config;
+    }
+
+    @Benchmark
+    public Configuration hdfsPathUnchanged() throws IOException {
+        this.config.loadProperties(this.hdfsName, Configuration.HDFSPATH_LOAD);
+        return this.config;
+    }
+}
@@ -0,0 +1,38 @@
+package com.skplanet.nlp.benchmark;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+
+import java.net.URI;
+
+/**
+ * Local file system answering to "hdfs://standin" URIs, so that {@code HDFSPATH_LOAD}
+ * can be benchmarked without a cluster.<br>
+ * "hdfs://standin/tmp/a.properties" is the local file "/tmp/a.properties".<br>
+ */
+public class LocalHdfsStandIn extends RawLocalFileSystem {
+
+    static final String PREFIX = "hdfs://standin";
+
+    private static final URI NAME = URI.create(PREFIX);
+
+    @Override
+    public URI getUri() {
+        return NAME;
+    }
+
+    @Override
+    protected void checkPath(Path path) {
+        // accept hdfs://standin paths
+    }
+
+    /**
+     * Hadoop configuration mapping the "hdfs" scheme to this class
+     * @return Hadoop configuration
+     */
+    static org.apache.hadoop.conf.Configuration conf() {
+        org.apache.hadoop.conf.Configuration conf = new org.apache.hadoop.conf.Configuration();
+        conf.set("fs.hdfs.impl", LocalHdfsStandIn.class.getName());
+        return conf;
+    }
+}
@@ -0,0 +1,113 @@
+package com.skplanet.nlp.benchmark;
+
+import com.skplanet.nlp.config.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Configuration#readProperty(String, String)} hits and misses with 1, 4 and all threads,
+ * and {@link Configuration#propertyNames(String)} / {@link Configuration#propertyNamesList(String)}<br>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ReadBenchmark {
+
+    private static final int ENTRIES = 1000;
+
+    private String propName;
+    private String[] hits;
+    private String[] misses;
+    private Configuration config;
+
+    /**
+     * Per thread position in the field arrays
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int i;
+
+        int next() {
+            i = (i + 1) & 1023;
+            return i % ENTRIES;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        File file = BenchmarkFiles.write(BenchmarkFiles.createDir(), "read.properties", ENTRIES);
+        this.propName = file.getPath();
+        this.config = Configuration.newInstance();
+        this.config.loadProperties(this.propName, Configuration.PHYSICALPATH_LOAD);
+
+        this.hits = new String[ENTRIES];
+        this.misses = new String[ENTRIES];
+        for (int i = 0; i < ENTRIES; i++) {
+            this.hits[i] = BenchmarkFiles.field(i);
+            this.misses[i] = BenchmarkFiles.field(i) + ".missing";
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String readHit1(Cursor cursor) {
+        return this.config.readProperty(this.propName, this.hits[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String readHit4(Cursor cursor) {
+        return this.config.readProperty(this.propName, this.hits[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String readHitMax(Cursor cursor) {
+        return this.config.readProperty(this.propName, this.hits[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String readMiss1(Cursor cursor) {
+        return this.config.readProperty(this.propName, this.misses[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String readMiss4(Cursor cursor) {
+        return this.config.readProperty(this.propName, this.misses[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String readMissMax(Cursor cursor) {
+        return this.config.readProperty(this.propName, this.misses[cursor.next()]);
+    }
+
+    @Benchmark
+    public String[] propertyNames() {
+        return this.config.propertyNames(this.propName);
+    }
+
+    @Benchmark
+    public List<String> propertyNamesList() {
+        return this.config.propertyNamesList(this.propName);
+    }
+}
@@ -0,0 +1,66 @@
+package com.skplanet.nlp.benchmark;
+
+import com.skplanet.nlp.writer.ConfigWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ConfigWriter}: open, add {@code entries} fields, write and close one file<br>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class WriteBenchmark {
+
+    private static final String NAME = "write.properties";
+
+    @Param({"10", "1000", "100000"})
+    public int entries;
+
+    private File dir;
+    private String[] fields;
+    private String[] values;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.dir = BenchmarkFiles.createDir();
+        new File(this.dir, NAME).deleteOnExit();
+
+        this.fields = new String[this.entries];
+        this.values = new String[this.entries];
+        for (int i = 0; i < this.entries; i++) {
+            this.fields[i] = BenchmarkFiles.field(i);
+            this.values[i] = BenchmarkFiles.value(i);
+        }
+    }
+
+    @Benchmark
+    public ConfigWriter write() {
+        ConfigWriter writer = ConfigWriter.newInstance();
+        writer.setBaseDir(this.dir.getPath());
+        writer.open(NAME);
+        writer.addHeader(NAME, "benchmark");
+        for (int i = 0; i < this.entries; i++) {
+            writer.addSingleConfig(NAME, this.fields[i], this.values[i]);
+        }
+        writer.write(NAME);
+        writer.close(NAME);
+        return writer;
+    }
+}
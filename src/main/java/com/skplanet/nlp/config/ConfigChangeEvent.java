@@ -0,0 +1,133 @@
+package com.skplanet.nlp.config;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Difference between two loads of a properties file<br>
+ */
+public class ConfigChangeEvent {
+
+    private final String propName;
+
+    // new fields and their values
+    private final Map<String, String> added;
+
+    // removed fields and their previous values
+    private final Map<String, String> removed;
+
+    // changed fields and their new values
+    private final Map<String, String> changed;
+
+    // changed fields and their previous values
+    private final Map<String, String> previous;
+
+    private ConfigChangeEvent(String propName, Map<String, String> added, Map<String, String> removed,
+                              Map<String, String> changed, Map<String, String> previous) {
+        this.propName = propName;
+        this.added = Collections.unmodifiableMap(added);
+        this.removed = Collections.unmodifiableMap(removed);
+        this.changed = Collections.unmodifiableMap(changed);
+        this.previous = previous;
+    }
+
+    /**
+     * Compute the difference between two loads
+     * @param propName properties file name
+     * @param before previous properties, null if the file was not loaded
+     * @param after new properties
+     * @return difference
+     */
+    static ConfigChangeEvent diff(String propName, PropertySet before, PropertySet after) {
+        HashMap<String, String> added = new HashMap<String, String>();
+        HashMap<String, String> removed = new HashMap<String, String>();
+        HashMap<String, String> changed = new HashMap<String, String>();
+        HashMap<String, String> previous = new HashMap<String, String>();
+
+        for (String field : after.names()) {
+            String value = after.get(field);
+            String old = before == null ? null : before.get(field);
+            if (old == null) {
+                added.put(field, value);
+            } else if (!old.equals(value)) {
+                changed.put(field, value);
+                previous.put(field, old);
+            }
+        }
+        if (before != null) {
+            for (String field : before.names()) {
+                if (after.get(field) == null) {
+                    removed.put(field, before.get(field));
+                }
+            }
+        }
+
+        return new ConfigChangeEvent(propName, added, removed, changed, previous);
+    }
+
+    /**
+     * Get the properties file name
+     * @return properties file name
+     */
+    public String getPropName() {
+        return this.propName;
+    }
+
+    /**
+     * Get the new fields
+     * @return new fields and their values
+     */
+    public Map<String, String> getAdded() {
+        return this.added;
+    }
+
+    /**
+     * Get the removed fields
+     * @return removed fields and their previous values
+     */
+    public Map<String, String> getRemoved() {
+        return this.removed;
+    }
+
+    /**
+     * Get the changed fields
+     * @return changed fields and their new values
+     */
+    public Map<String, String> getChanged() {
+        return this.changed;
+    }
+
+    /**
+     * Get the value a changed or removed field had before the reload
+     * @param field field name
+     * @return previous value, or null if the field is new or unchanged
+     */
+    public String getPreviousValue(String field) {
+        String value = this.previous.get(field);
+        return value != null ? value : this.removed.get(field);
+    }
+
+    /**
+     * Check whether anything changed
+     * @return true if no field was added, removed or changed
+     */
+    public boolean isEmpty() {
+        return this.added.isEmpty() && this.removed.isEmpty() && this.changed.isEmpty();
+    }
+
+    /**
+     * Check whether the given field was added, removed or changed
+     * @param field field name
+     * @return true if the field is part of the difference
+     */
+    public boolean affects(String field) {
+        return this.added.containsKey(field) || this.removed.containsKey(field) || this.changed.containsKey(field);
+    }
+
+    @Override
+    public String toString() {
+        return this.propName + " : added=" + this.added.keySet() + ", removed=" + this.removed.keySet()
+                + ", changed=" + this.changed.keySet();
+    }
+}
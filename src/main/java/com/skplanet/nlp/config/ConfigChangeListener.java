@@ -0,0 +1,16 @@
+package com.skplanet.nlp.config;
+
+/**
+ * Listener for reloads of properties files<br>
+ * <br>
+ * called asynchronously after a file is (re)loaded into {@link Configuration},
+ * with the added, removed and changed fields only.<br>
+ */
+public interface ConfigChangeListener {
+
+    /**
+     * Called when a properties file has been (re)loaded with different contents
+     * @param event added, removed and changed fields
+     */
+    public void onChange(ConfigChangeEvent event);
+}
@@ -1,11 +1,25 @@
 package com.skplanet.nlp.config;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.Set;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Configuration Item Container
+ * Configuration Item Container<br>
+ * <br>
+ * thread-safe : items are spread over lock stripes by field hash,
+ * so threads adding different fields rarely wait for each other.
+ * every new field takes a sequence number, and the stripes are merged in that order,
+ * or by field name with {@link #setSorted(boolean)} : the only order independent of thread scheduling
+ * when several threads add to the same configuration.
+ * adding a field again replaces the value and keeps the position.<br>
  *
  * Created by Donghun Shin
  * Contact: donghun.shin@sk.com, sindongboy@gmail.com
@@ -13,30 +27,119 @@ import java.util.Set;
  */
 public class ConfigItem {
 
+    private static final int STRIPES = 64;
 
     /**
-     * Configuration field and value pair
+     * value and position of one field
      */
-    private HashMap<String, String> items = null;
+    private static final class Slot {
+        String value;
+        final long seq;
+
+        Slot(String value, long seq) {
+            this.value = value;
+            this.seq = seq;
+        }
+    }
+
+    /**
+     * merged item, for writing
+     */
+    private static final class Item {
+        final String field;
+        final String value;
+        final long seq;
+
+        Item(String field, String value, long seq) {
+            this.field = field;
+            this.value = value;
+            this.seq = seq;
+        }
+    }
+
+    private static final Comparator<Item> BY_SEQ = new Comparator<Item>() {
+        @Override
+        public int compare(Item a, Item b) {
+            return a.seq < b.seq ? -1 : (a.seq == b.seq ? 0 : 1);
+        }
+    };
+
+    private static final Comparator<Item> BY_FIELD = new Comparator<Item>() {
+        @Override
+        public int compare(Item a, Item b) {
+            return a.field.compareTo(b.field);
+        }
+    };
+
+    /**
+     * Configuration field and value pair, per stripe. each stripe is guarded by its own lock
+     */
+    private final HashMap<String, Slot>[] items;
+
+    /**
+     * next sequence number
+     */
+    private final AtomicLong sequence;
+
+    /**
+     * write in field order instead of insertion order
+     */
+    private volatile boolean sorted = false;
 
     /**
      * Tag for Configuration Header
      */
     public static final String HEADER_TAG = "# ";
 
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
     /**
      * Constructor
      */
     public ConfigItem() {
-        this.items = new HashMap<String, String>();
+        this.items = newStripes(STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            this.items[i] = new HashMap<String, Slot>();
+        }
+        this.sequence = new AtomicLong();
+    }
+
+    /**
+     * Create the array of stripes, generic arrays can only be created raw
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static HashMap<String, Slot>[] newStripes(int size) {
+        return new HashMap[size];
+    }
+
+    /**
+     * Write the items sorted by field name instead of insertion order
+     * @param sorted true to sort by field name
+     */
+    public void setSorted(boolean sorted) {
+        this.sorted = sorted;
+    }
+
+    /**
+     * Check if the items are written sorted by field name
+     * @return true if sorted by field name, false in insertion order
+     */
+    public boolean isSorted() {
+        return this.sorted;
     }
 
     /**
      * Get the size of field and value pair, or Configuration item
-     * @return
+     * @return number of items
      */
     public int size() {
-        return this.items.size();
+        int size = 0;
+        for (HashMap<String, Slot> stripe : this.items) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
     }
 
     /**
@@ -45,11 +148,15 @@ public class ConfigItem {
      * @param value value
      */
     public void addOneItem(String field, String value) {
-        if (!this.items.containsKey(field)) {
-            this.items.remove(field);
-            this.items.put(field, value);
-        } else {
-            this.items.put(field, value);
+        int h = field.hashCode();
+        HashMap<String, Slot> stripe = this.items[(h ^ (h >>> 16)) & (STRIPES - 1)];
+        synchronized (stripe) {
+            Slot slot = stripe.get(field);
+            if (slot == null) {
+                stripe.put(field, new Slot(value, this.sequence.getAndIncrement()));
+            } else {
+                slot.value = value;
+            }
         }
     }
 
@@ -70,18 +177,123 @@ public class ConfigItem {
         }
     }
 
+    /**
+     * Merge the stripes, in insertion or field order
+     */
+    private List<Item> merged() {
+        ArrayList<Item> merged = new ArrayList<Item>();
+        for (HashMap<String, Slot> stripe : this.items) {
+            synchronized (stripe) {
+                merged.ensureCapacity(merged.size() + stripe.size());
+                for (Map.Entry<String, Slot> entry : stripe.entrySet()) {
+                    Slot slot = entry.getValue();
+                    merged.add(new Item(entry.getKey(), slot.value, slot.seq));
+                }
+            }
+        }
+        Collections.sort(merged, this.sorted ? BY_FIELD : BY_SEQ);
+        return merged;
+    }
+
+    /**
+     * Copy the items into a new {@link Properties}
+     * @return properties object
+     */
+    public Properties toProperties() {
+        Properties prop = new Properties();
+        for (Item item : merged()) {
+            prop.setProperty(item.field, item.value);
+        }
+        return prop;
+    }
+
+    /**
+     * Write the items in properties format.<br>
+     * items added while writing may or may not be written.
+     * @param out destination
+     */
+    public void writeTo(Writer out) throws IOException {
+        StringBuilder line = new StringBuilder(128);
+        for (Item item : merged()) {
+            line.setLength(0);
+            out.append(format(line, item.field, item.value));
+        }
+    }
+
     @Override
     public String toString() {
-        ArrayList<String> config = new ArrayList<String>();
-        Set<String> keys = this.items.keySet();
         StringBuilder out = new StringBuilder();
-
-        for (String key : keys) {
-            out.append(key + "=" + this.items.get(key) + "\n");
+        for (Item item : merged()) {
+            format(out, item.field, item.value);
         }
         return out.toString();
     }
 
+    /**
+     * Append one "key=value" line, escaped as {@link Properties#store(java.io.OutputStream, String)} does
+     * @param out destination
+     * @param field field
+     * @param value value
+     * @return {@code out}
+     */
+    public static StringBuilder format(StringBuilder out, String field, String value) {
+        escape(out, field, true);
+        out.append('=');
+        escape(out, value, false);
+        return out.append('\n');
+    }
+
+    /**
+     * Append a key or a value, escaped for the properties format.<br>
+     * characters outside printable ASCII are written as \\uxxxx,
+     * so the file reads the same through a {@link java.io.Reader} and an {@link java.io.InputStream}.
+     * @param out destination
+     * @param s key or value
+     * @param key true to escape all the spaces, false to escape a leading space only
+     * @return {@code out}
+     */
+    public static StringBuilder escape(StringBuilder out, String s, boolean key) {
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case ' ':
+                    if (i == 0 || key) {
+                        out.append('\\');
+                    }
+                    out.append(' ');
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\f':
+                    out.append("\\f");
+                    break;
+                case '\\':
+                case '=':
+                case ':':
+                case '#':
+                case '!':
+                    out.append('\\').append(c);
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        out.append("\\u").append(HEX[(c >> 12) & 0xF]).append(HEX[(c >> 8) & 0xF])
+                                .append(HEX[(c >> 4) & 0xF]).append(HEX[c & 0xF]);
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        return out;
+    }
+
     /**
      * Sample Program
      * @param args no args needed
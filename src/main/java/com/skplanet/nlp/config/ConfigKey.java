@@ -0,0 +1,150 @@
+package com.skplanet.nlp.config;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pre-resolved handle for one property field<br>
+ * <br>
+ * Created once through {@link Configuration#key(String, String)} or its typed variants,
+ * then read with {@link #get()} as often as needed.
+ * reading is a single volatile read : no hashing, no parsing and no allocation.
+ * {@link Configuration} refreshes the handle whenever the bound file is (re)loaded.<br>
+ * <br>
+ * {@link Configuration} holds the handles weakly : a handle that is no longer referenced is dropped,
+ * so handles may also be created on the fly. {@link Configuration#removeKey(ConfigKey)} drops one right away.<br>
+ */
+public final class ConfigKey<T> {
+
+    /**
+     * properties file the field belongs to
+     */
+    private final String propName;
+
+    /**
+     * field name
+     */
+    private final String field;
+
+    /**
+     * value type, null for plain {@link String} and enum values
+     */
+    private final ValueType type;
+
+    /**
+     * unit of the value for {@link ValueType#DURATION}
+     */
+    private final TimeUnit unit;
+
+    /**
+     * enum class for enum values, null otherwise
+     */
+    private final Class<?> enumType;
+
+    /**
+     * value used when the file or the field doesn't exist
+     */
+    private final T defaultValue;
+
+    /**
+     * current value
+     */
+    private volatile T value;
+
+    /**
+     * last malformed value warned about, guarded by the refresh lock
+     */
+    private String malformed;
+
+    ConfigKey(String propName, String field, ValueType type, TimeUnit unit, Class<?> enumType, T defaultValue) {
+        this.propName = propName;
+        this.field = field;
+        this.type = type;
+        this.unit = unit;
+        this.enumType = enumType;
+        this.defaultValue = defaultValue;
+        this.value = defaultValue;
+    }
+
+    /**
+     * Get the current value
+     * @return current value, or the default value if the field doesn't exist
+     */
+    public T get() {
+        return this.value;
+    }
+
+    /**
+     * Get the properties file name this handle is bound to
+     * @return properties file name
+     */
+    public String getPropName() {
+        return this.propName;
+    }
+
+    /**
+     * Get the field name
+     * @return field name
+     */
+    public String getField() {
+        return this.field;
+    }
+
+    /**
+     * Update the value from the latest published properties.<br>
+     * the snapshot is read under the lock, so the last refresh to run applies the latest version
+     * and concurrent refreshes can't leave an older value behind.
+     * @param snapshot published properties of the {@link Configuration}
+     */
+    synchronized void refresh(AtomicReference<Map<String, PropertySet>> snapshot) {
+        PropertySet set = snapshot.get().get(this.propName);
+        if (set == null) {
+            this.value = this.defaultValue;
+            return;
+        }
+
+        Object parsed;
+        try {
+            parsed = extract(set);
+            this.malformed = null;
+        } catch (IllegalArgumentException e) {
+            // warn once per bad value, not on every reload of the file
+            String raw = set.get(this.field);
+            if (raw != null && !raw.equals(this.malformed)) {
+                System.err.println("[WARNING] malformed value for field : " + this.field + " in " + this.propName
+                        + " : " + raw);
+            }
+            this.malformed = raw;
+            parsed = null;
+        }
+        this.value = parsed == null ? this.defaultValue : this.<T>cast(parsed);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object extract(PropertySet set) {
+        if (this.enumType != null) {
+            return set.parsedEnum(this.field, (Class) this.enumType);
+        }
+        if (this.type == null) {
+            return set.get(this.field);
+        }
+        switch (this.type) {
+            case DURATION:
+                Object nanos = set.parsed(this.field, ValueType.DURATION);
+                return nanos == null ? null : Long.valueOf(this.unit.convert((Long) nanos, TimeUnit.NANOSECONDS));
+            default:
+                return set.parsed(this.field, this.type);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> V cast(Object o) {
+        return (V) o;
+    }
+
+    @Override
+    public String toString() {
+        return this.propName + ":" + this.field + "=" + this.value;
+    }
+}
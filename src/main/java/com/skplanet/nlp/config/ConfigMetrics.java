@@ -0,0 +1,333 @@
+package com.skplanet.nlp.config;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Access and load metrics of a {@link Configuration}<br>
+ * <br>
+ * enabled with {@link Configuration#enableMetrics(String)}.
+ * counters are {@link LongAdder}s, so recording from many threads doesn't contend.
+ * per field counters are limited to {@link #MAX_FIELDS_PER_FILE} fields per file,
+ * reads of further fields are counted under {@link #OTHER_FIELDS}.
+ * reads of files never loaded are counted per file up to {@link #MAX_FILES} files, under {@link #OTHER_FILES} beyond.
+ * reads through {@link ConfigKey} handles are not counted.<br>
+ */
+public class ConfigMetrics implements ConfigMetricsMXBean {
+
+    public static final int MAX_FIELDS_PER_FILE = 10000;
+    public static final String OTHER_FIELDS = "(other)";
+    public static final int MAX_FILES = 1000;
+    public static final String OTHER_FILES = "(other files)";
+
+    private static final String DOMAIN = "com.skplanet.nlp.config";
+
+    /**
+     * read counters of one field
+     */
+    private static final class FieldStats {
+        final LongAdder reads = new LongAdder();
+        final LongAdder misses = new LongAdder();
+    }
+
+    /**
+     * load counters and per field read counters of one properties file
+     */
+    private static final class FileStats {
+        final LongAdder loads = new LongAdder();
+        final LongAdder reloads = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder loadNanos = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        volatile long lastLoadNanos;
+        final ConcurrentHashMap<String, FieldStats> fields = new ConcurrentHashMap<String, FieldStats>();
+        // reads of the fields beyond MAX_FIELDS_PER_FILE, and of null fields
+        final FieldStats other = new FieldStats();
+    }
+
+    private final ConcurrentHashMap<String, FileStats> files;
+
+    // reads of the files beyond MAX_FILES
+    private volatile FileStats otherFiles;
+
+    private final LongAdder totalReads;
+    private final LongAdder totalMisses;
+
+    // registered MBean name, null if not registered
+    private volatile ObjectName objectName;
+
+    ConfigMetrics() {
+        this.files = new ConcurrentHashMap<String, FileStats>();
+        this.totalReads = new LongAdder();
+        this.totalMisses = new LongAdder();
+        this.otherFiles = new FileStats();
+    }
+
+    //--------------------------------
+    // recording
+    //--------------------------------
+
+    private FileStats file(String propName) {
+        FileStats stats = this.files.get(propName);
+        if (stats == null) {
+            FileStats created = new FileStats();
+            stats = this.files.putIfAbsent(propName, created);
+            if (stats == null) {
+                stats = created;
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Record a read
+     * @param propName properties file name
+     * @param field field name
+     * @param miss true if the file or the field doesn't exist
+     */
+    void recordRead(String propName, String field, boolean miss) {
+        this.totalReads.increment();
+        if (miss) {
+            this.totalMisses.increment();
+        }
+        if (propName == null) {
+            return;
+        }
+
+        FileStats stats = this.files.get(propName);
+        if (stats == null) {
+            // any name may be read, only loaded files are always tracked
+            stats = this.files.size() >= MAX_FILES ? this.otherFiles : file(propName);
+        }
+        FieldStats fs = field == null ? stats.other : stats.fields.get(field);
+        if (fs == null) {
+            if (stats.fields.size() >= MAX_FIELDS_PER_FILE) {
+                fs = stats.other;
+            } else {
+                FieldStats created = new FieldStats();
+                fs = stats.fields.putIfAbsent(field, created);
+                if (fs == null) {
+                    fs = created;
+                }
+            }
+        }
+        fs.reads.increment();
+        if (miss) {
+            fs.misses.increment();
+        }
+    }
+
+    /**
+     * Record a successful load
+     * @param propName properties file name
+     * @param nanos load duration
+     * @param bytes bytes read, 0 if the load was skipped
+     * @param reload true if the file was already loaded
+     */
+    void recordLoad(String propName, long nanos, long bytes, boolean reload) {
+        FileStats stats = file(propName);
+        stats.loads.increment();
+        if (reload) {
+            stats.reloads.increment();
+        }
+        stats.loadNanos.add(nanos);
+        stats.bytes.add(bytes);
+        stats.lastLoadNanos = nanos;
+    }
+
+    /**
+     * Record a failed load
+     * @param propName properties file name
+     */
+    void recordFailure(String propName) {
+        file(propName).failures.increment();
+    }
+
+    //--------------------------------
+    // snapshot
+    //--------------------------------
+
+    @Override
+    public long getTotalReads() {
+        return this.totalReads.sum();
+    }
+
+    @Override
+    public long getTotalMisses() {
+        return this.totalMisses.sum();
+    }
+
+    @Override
+    public Map<String, Long> getReadCounts() {
+        Map<String, Long> out = new TreeMap<String, Long>();
+        for (Map.Entry<String, FileStats> file : this.files.entrySet()) {
+            putFields(out, file.getKey(), file.getValue(), false);
+        }
+        putFields(out, OTHER_FILES, this.otherFiles, false);
+        return out;
+    }
+
+    @Override
+    public Map<String, Long> getMissCounts() {
+        Map<String, Long> out = new TreeMap<String, Long>();
+        for (Map.Entry<String, FileStats> file : this.files.entrySet()) {
+            putFields(out, file.getKey(), file.getValue(), true);
+        }
+        putFields(out, OTHER_FILES, this.otherFiles, true);
+        return out;
+    }
+
+    /**
+     * Add the read or miss counts of the fields of one file as "file:field", skipping zero counts
+     * of {@link #OTHER_FIELDS} and of misses
+     */
+    private static void putFields(Map<String, Long> out, String fileName, FileStats stats, boolean misses) {
+        for (Map.Entry<String, FieldStats> field : stats.fields.entrySet()) {
+            long count = misses ? field.getValue().misses.sum() : field.getValue().reads.sum();
+            if (!misses || count > 0) {
+                out.put(fileName + ":" + field.getKey(), count);
+            }
+        }
+        long other = misses ? stats.other.misses.sum() : stats.other.reads.sum();
+        if (other > 0) {
+            out.put(fileName + ":" + OTHER_FIELDS, other);
+        }
+    }
+
+    @Override
+    public Map<String, Long> getLoadCounts() {
+        Map<String, Long> out = new TreeMap<String, Long>();
+        for (Map.Entry<String, FileStats> file : this.files.entrySet()) {
+            out.put(file.getKey(), file.getValue().loads.sum());
+        }
+        return out;
+    }
+
+    @Override
+    public Map<String, Long> getReloadCounts() {
+        Map<String, Long> out = new TreeMap<String, Long>();
+        for (Map.Entry<String, FileStats> file : this.files.entrySet()) {
+            out.put(file.getKey(), file.getValue().reloads.sum());
+        }
+        return out;
+    }
+
+    @Override
+    public Map<String, Long> getLoadFailures() {
+        Map<String, Long> out = new TreeMap<String, Long>();
+        for (Map.Entry<String, FileStats> file : this.files.entrySet()) {
+            out.put(file.getKey(), file.getValue().failures.sum());
+        }
+        return out;
+    }
+
+    @Override
+    public Map<String, Long> getLastLoadMillis() {
+        Map<String, Long> out = new TreeMap<String, Long>();
+        for (Map.Entry<String, FileStats> file : this.files.entrySet()) {
+            out.put(file.getKey(), TimeUnit.NANOSECONDS.toMillis(file.getValue().lastLoadNanos));
+        }
+        return out;
+    }
+
+    @Override
+    public Map<String, Long> getTotalLoadMillis() {
+        Map<String, Long> out = new TreeMap<String, Long>();
+        for (Map.Entry<String, FileStats> file : this.files.entrySet()) {
+            out.put(file.getKey(), TimeUnit.NANOSECONDS.toMillis(file.getValue().loadNanos.sum()));
+        }
+        return out;
+    }
+
+    @Override
+    public Map<String, Long> getBytesRead() {
+        Map<String, Long> out = new TreeMap<String, Long>();
+        for (Map.Entry<String, FileStats> file : this.files.entrySet()) {
+            out.put(file.getKey(), file.getValue().bytes.sum());
+        }
+        return out;
+    }
+
+    /**
+     * Get the most read fields
+     * @param n number of fields
+     * @return "file:field" and read count, most read first
+     */
+    public Map<String, Long> getHotFields(int n) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<Map.Entry<String, Long>>(getReadCounts().entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, Long>>() {
+            @Override
+            public int compare(Map.Entry<String, Long> a, Map.Entry<String, Long> b) {
+                return b.getValue().compareTo(a.getValue());
+            }
+        });
+
+        Map<String, Long> out = new LinkedHashMap<String, Long>();
+        for (int i = 0; i < entries.size() && i < n; i++) {
+            out.put(entries.get(i).getKey(), entries.get(i).getValue());
+        }
+        return out;
+    }
+
+    @Override
+    public void reset() {
+        this.files.clear();
+        this.otherFiles = new FileStats();
+        this.totalReads.reset();
+        this.totalMisses.reset();
+    }
+
+    //--------------------------------
+    // JMX
+    //--------------------------------
+
+    /**
+     * Register as an MXBean named "com.skplanet.nlp.config:type=ConfigMetrics,name={@code name}"
+     * @param name name of the {@link Configuration}
+     */
+    void register(String name) {
+        try {
+            ObjectName on = new ObjectName(DOMAIN + ":type=ConfigMetrics,name=" + ObjectName.quote(name));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            try {
+                server.registerMBean(this, on);
+            } catch (InstanceAlreadyExistsException e) {
+                server.unregisterMBean(on);
+                server.registerMBean(this, on);
+            }
+            this.objectName = on;
+        } catch (JMException e) {
+            System.err.println("[WARNING] failure to register metrics MBean : " + name);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Unregister the MXBean, if registered
+     */
+    void unregister() {
+        ObjectName on = this.objectName;
+        if (on == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(on);
+        } catch (JMException e) {
+            // already gone
+        }
+        this.objectName = null;
+    }
+}
@@ -0,0 +1,36 @@
+package com.skplanet.nlp.config;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link ConfigMetrics}<br>
+ * <br>
+ * maps are keyed by properties file name, or by "file:field" for per field counters.<br>
+ */
+public interface ConfigMetricsMXBean {
+
+    public long getTotalReads();
+
+    public long getTotalMisses();
+
+    public Map<String, Long> getReadCounts();
+
+    public Map<String, Long> getMissCounts();
+
+    public Map<String, Long> getLoadCounts();
+
+    public Map<String, Long> getReloadCounts();
+
+    public Map<String, Long> getLoadFailures();
+
+    public Map<String, Long> getLastLoadMillis();
+
+    public Map<String, Long> getTotalLoadMillis();
+
+    public Map<String, Long> getBytesRead();
+
+    /**
+     * Reset all the counters
+     */
+    public void reset();
+}
@@ -0,0 +1,298 @@
+package com.skplanet.nlp.config;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background hot reloader for files loaded with {@link Configuration#PHYSICALPATH_LOAD}
+ * or {@link Configuration#MAPPED_PHYSICALPATH_LOAD}<br>
+ * <br>
+ * working flow.<br>
+ *
+ * 1. Load Properties with {@link Configuration#PHYSICALPATH_LOAD} <br>
+ * 2. Create {@link ConfigReloader} and {@link #watch(String)} the same file name <br>
+ * 3. {@link #start()}, edits to the file are reloaded in place <br>
+ * 4. {@link #close()} at shutdown <br>
+ * <br>
+ * Changes are detected with {@link WatchService}, and by polling modification time and size
+ * for file systems where no events are delivered (e.g. NFS).
+ * A burst of events is debounced into a single reload, and the file is parsed on the reloader thread,
+ * then swapped in atomically. A file that fails to parse keeps its previous properties.<br>
+ */
+public class ConfigReloader implements Closeable {
+
+    /**
+     * watched file state, only modified by the reloader thread after registration
+     */
+    private static final class Watched {
+        final String fileName;
+        final int mode;
+        final Path path;
+        long modified;
+        long size;
+        // time the pending reload is due, -1 if none
+        long due = -1;
+
+        Watched(String fileName, int mode, Path path) {
+            this.fileName = fileName;
+            this.mode = mode;
+            this.path = path;
+        }
+    }
+
+    private final Configuration config;
+
+    // watched files by absolute path
+    private final ConcurrentHashMap<Path, Watched> watched;
+
+    // directories registered to the watch service
+    private final Set<Path> directories;
+
+    // null if the platform has no watch service, polling only
+    private final WatchService watcher;
+
+    private final Thread thread;
+
+    private volatile boolean running = false;
+
+    // quiet period after the last change before reloading
+    private volatile long debounceMillis = 500;
+
+    // interval of the modification time and size check
+    private volatile long pollMillis = 2000;
+
+    /**
+     * Constructor
+     * @param config configuration the watched files are loaded into
+     */
+    public ConfigReloader(Configuration config) {
+        this.config = config;
+        this.watched = new ConcurrentHashMap<Path, Watched>();
+        this.directories = new HashSet<Path>();
+
+        WatchService ws = null;
+        try {
+            ws = FileSystems.getDefault().newWatchService();
+        } catch (IOException e) {
+            System.err.println("[WARNING] watch service is not available, falling back to polling");
+        } catch (UnsupportedOperationException e) {
+            System.err.println("[WARNING] watch service is not available, falling back to polling");
+        }
+        this.watcher = ws;
+
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loop();
+            }
+        }, "config-reloader");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Set the quiet period after the last change before a file is reloaded
+     * @param time time
+     * @param unit unit of {@code time}
+     */
+    public void setDebounce(long time, TimeUnit unit) {
+        this.debounceMillis = unit.toMillis(time);
+    }
+
+    /**
+     * Set the interval of the modification time and size check
+     * @param time time
+     * @param unit unit of {@code time}
+     */
+    public void setPollInterval(long time, TimeUnit unit) {
+        this.pollMillis = Math.max(1, unit.toMillis(time));
+    }
+
+    /**
+     * Watch the given file, which must be loaded with {@link Configuration#PHYSICALPATH_LOAD}
+     * @param fileName the file name as given to {@link Configuration#loadProperties(String, int)}
+     */
+    public void watch(String fileName) {
+        watch(fileName, Configuration.PHYSICALPATH_LOAD);
+    }
+
+    /**
+     * Watch the given file
+     * @param fileName the file name as given to {@link Configuration#loadProperties(String, int)}
+     * @param mode the load mode, {@link Configuration#PHYSICALPATH_LOAD}
+     *             or {@link Configuration#MAPPED_PHYSICALPATH_LOAD}
+     */
+    public void watch(String fileName, int mode) {
+        Path path = Paths.get(fileName).toAbsolutePath().normalize();
+        Watched w = new Watched(fileName, mode, path);
+        stamp(w);
+
+        Path dir = path.getParent();
+        if (this.watcher != null && dir != null) {
+            synchronized (this.directories) {
+                if (!this.directories.contains(dir)) {
+                    try {
+                        dir.register(this.watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                                StandardWatchEventKinds.ENTRY_MODIFY);
+                        this.directories.add(dir);
+                    } catch (IOException e) {
+                        System.err.println("[WARNING] can't watch directory, polling only : " + dir);
+                    }
+                }
+            }
+        }
+        this.watched.put(path, w);
+    }
+
+    /**
+     * Stop watching the given file
+     * @param fileName the file name given to {@link #watch(String)}
+     */
+    public void unwatch(String fileName) {
+        this.watched.remove(Paths.get(fileName).toAbsolutePath().normalize());
+    }
+
+    /**
+     * Start the reloader thread
+     */
+    public void start() {
+        this.running = true;
+        this.thread.start();
+    }
+
+    /**
+     * Stop the reloader thread
+     */
+    @Override
+    public void close() {
+        this.running = false;
+        if (this.watcher != null) {
+            try {
+                this.watcher.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        this.thread.interrupt();
+    }
+
+    private void loop() {
+        long lastPoll = System.currentTimeMillis();
+
+        while (this.running) {
+            long now = System.currentTimeMillis();
+            long wait = Math.max(1, lastPoll + this.pollMillis - now);
+            for (Watched w : this.watched.values()) {
+                if (w.due > 0) {
+                    wait = Math.max(1, Math.min(wait, w.due - now));
+                }
+            }
+
+            try {
+                if (this.watcher != null) {
+                    WatchKey key = this.watcher.poll(wait, TimeUnit.MILLISECONDS);
+                    if (key != null) {
+                        onEvents(key);
+                    }
+                } else {
+                    Thread.sleep(wait);
+                }
+            } catch (InterruptedException e) {
+                break;
+            } catch (ClosedWatchServiceException e) {
+                break;
+            }
+
+            now = System.currentTimeMillis();
+            boolean poll = now - lastPoll >= this.pollMillis;
+            if (poll) {
+                lastPoll = now;
+            }
+
+            for (Watched w : this.watched.values()) {
+                if (w.due > 0 && w.due <= now) {
+                    w.due = -1;
+                    reload(w);
+                } else if (poll && w.due < 0 && changed(w)) {
+                    w.due = now + this.debounceMillis;
+                }
+            }
+        }
+    }
+
+    private void onEvents(WatchKey key) {
+        Path dir = (Path) key.watchable();
+        long due = System.currentTimeMillis() + this.debounceMillis;
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // events lost, reload everything in the directory
+                for (Watched w : this.watched.values()) {
+                    if (dir.equals(w.path.getParent())) {
+                        w.due = due;
+                    }
+                }
+                continue;
+            }
+
+            Watched w = this.watched.get(dir.resolve((Path) event.context()));
+            if (w != null) {
+                w.due = due;
+            }
+        }
+        key.reset();
+    }
+
+    private void reload(Watched w) {
+        if (!Files.isRegularFile(w.path)) {
+            // deleted or being replaced, keep the current properties
+            return;
+        }
+        try {
+            stamp(w);
+            this.config.loadProperties(w.fileName, w.mode);
+        } catch (Exception e) {
+            System.err.println("[WARNING] failure to reload, keeping previous properties : " + w.fileName);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Check whether modification time or size differ from the last reload
+     */
+    private boolean changed(Watched w) {
+        try {
+            BasicFileAttributes attr = Files.readAttributes(w.path, BasicFileAttributes.class);
+            return attr.lastModifiedTime().toMillis() != w.modified || attr.size() != w.size;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Remember modification time and size of the file
+     */
+    private void stamp(Watched w) {
+        try {
+            BasicFileAttributes attr = Files.readAttributes(w.path, BasicFileAttributes.class);
+            w.modified = attr.lastModifiedTime().toMillis();
+            w.size = attr.size();
+        } catch (IOException e) {
+            w.modified = -1;
+            w.size = -1;
+        }
+    }
+}
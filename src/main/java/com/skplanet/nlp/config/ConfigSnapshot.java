@@ -0,0 +1,345 @@
+package com.skplanet.nlp.config;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * Compiled binary snapshot of several properties files<br>
+ * <br>
+ * working flow.<br>
+ *
+ * 1. Compile the properties files at deploy time, with {@link #main(String[])},
+ *    {@link #write(Configuration, File)} or {@link com.skplanet.nlp.writer.ConfigWriter#writeSnapshot(String)} <br>
+ * 2. Load the snapshot with {@link Configuration#loadSnapshot(String)}, all the files at once <br>
+ * 3. Read Properties as usual, with the file names stored in the snapshot <br>
+ * <br>
+ * the snapshot is memory-mapped and read in place : no text is parsed at startup.
+ * it holds a table of distinct strings, shared by all the files,
+ * and per file an index of entries sorted by key hash.
+ * numbers and booleans are parsed at compile time, so typed reads of those values skip parsing too.<br>
+ * <br>
+ * layout, big-endian.<br>
+ *
+ * header : magic, version, CRC32 of everything after the checksum, file count, string count, string data length <br>
+ * files : name id, entry count, entries position <br>
+ * strings : string count + 1 offsets, then UTF-8 data <br>
+ * entries : key hash, key id, value id, value tag, value bits <br>
+ */
+public final class ConfigSnapshot {
+
+    static final int MAGIC = 0x4F4D5053;
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 24;
+    static final int FILE_SIZE = 12;
+    static final int ENTRY_SIZE = 24;
+
+    /**
+     * value tags
+     */
+    static final int TAG_STRING = 0;
+    static final int TAG_LONG = 1;
+    static final int TAG_DOUBLE = 2;
+    static final int TAG_BOOLEAN = 3;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private ConfigSnapshot() {
+    }
+
+    /**
+     * Compile all the files currently loaded in the given {@link Configuration}
+     * @param config configuration
+     * @param out snapshot file, replaced atomically
+     */
+    public static void write(Configuration config, File out) throws IOException {
+        write(config.snapshotProperties(), out);
+    }
+
+    /**
+     * Compile the given properties files
+     * @param files properties by file name, the names readers will use
+     * @param out snapshot file, replaced atomically
+     */
+    public static void write(Map<String, Properties> files, File out) throws IOException {
+        // string table
+        final LinkedHashMap<String, Integer> ids = new LinkedHashMap<String, Integer>();
+        List<String> names = new ArrayList<String>(files.keySet());
+        Collections.sort(names);
+
+        List<long[]> tables = new ArrayList<long[]>(names.size());
+        for (String name : names) {
+            id(ids, name);
+            Properties prop = files.get(name);
+
+            // key hash, key id, value id, tag per entry, sorted by hash then key
+            final List<String> keys = new ArrayList<String>(prop.stringPropertyNames());
+            Collections.sort(keys, new Comparator<String>() {
+                @Override
+                public int compare(String a, String b) {
+                    int ha = a.hashCode();
+                    int hb = b.hashCode();
+                    return ha != hb ? (ha < hb ? -1 : 1) : a.compareTo(b);
+                }
+            });
+
+            long[] table = new long[keys.size() * 4];
+            for (int i = 0; i < keys.size(); i++) {
+                String key = keys.get(i);
+                String value = prop.getProperty(key);
+                long[] typed = typed(value);
+                table[i * 4] = ((long) key.hashCode() << 32) | (id(ids, key) & 0xFFFFFFFFL);
+                table[i * 4 + 1] = id(ids, value);
+                table[i * 4 + 2] = typed[0];
+                table[i * 4 + 3] = typed[1];
+            }
+            tables.add(table);
+        }
+
+        byte[][] strings = new byte[ids.size()][];
+        int dataLength = 0;
+        int i = 0;
+        for (String s : ids.keySet()) {
+            strings[i] = s.getBytes(UTF_8);
+            dataLength += strings[i].length;
+            i++;
+        }
+
+        int stringsStart = HEADER_SIZE + names.size() * FILE_SIZE;
+        int dataStart = stringsStart + (strings.length + 1) * 4;
+        // entries aligned on 8 bytes
+        int entriesStart = (dataStart + dataLength + 7) & ~7;
+
+        ByteBuffer buf = ByteBuffer.allocate(size(entriesStart, tables));
+        buf.putInt(MAGIC);
+        buf.putInt(VERSION);
+        buf.putInt(0);
+        buf.putInt(names.size());
+        buf.putInt(strings.length);
+        buf.putInt(dataLength);
+
+        int position = entriesStart;
+        for (int f = 0; f < names.size(); f++) {
+            int entries = tables.get(f).length / 4;
+            buf.putInt(ids.get(names.get(f)));
+            buf.putInt(entries);
+            buf.putInt(position);
+            position += entries * ENTRY_SIZE;
+        }
+
+        int offset = 0;
+        for (byte[] s : strings) {
+            buf.putInt(offset);
+            offset += s.length;
+        }
+        buf.putInt(offset);
+        for (byte[] s : strings) {
+            buf.put(s);
+        }
+
+        buf.position(entriesStart);
+        for (long[] table : tables) {
+            for (int e = 0; e < table.length; e += 4) {
+                buf.putInt((int) (table[e] >>> 32));
+                buf.putInt((int) table[e]);
+                buf.putInt((int) table[e + 1]);
+                buf.putInt((int) table[e + 2]);
+                buf.putLong(table[e + 3]);
+            }
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), 12, buf.capacity() - 12);
+        buf.putInt(8, (int) crc.getValue());
+
+        replace(out, buf.array());
+    }
+
+    private static int size(int entriesStart, List<long[]> tables) throws IOException {
+        long size = entriesStart;
+        for (long[] table : tables) {
+            size += (long) (table.length / 4) * ENTRY_SIZE;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("snapshot larger than 2GB");
+        }
+        return (int) size;
+    }
+
+    private static int id(Map<String, Integer> ids, String s) {
+        Integer id = ids.get(s);
+        if (id == null) {
+            id = ids.size();
+            ids.put(s, id);
+        }
+        return id;
+    }
+
+    /**
+     * Parse a value at compile time, with the parsers of the typed accessors
+     * @return tag and bits
+     */
+    private static long[] typed(String value) {
+        try {
+            return new long[]{TAG_LONG, (Long) ValueType.LONG.parse(value)};
+        } catch (IllegalArgumentException e) {
+            // not a long
+        }
+        try {
+            return new long[]{TAG_DOUBLE, Double.doubleToRawLongBits((Double) ValueType.DOUBLE.parse(value))};
+        } catch (IllegalArgumentException e) {
+            // not a double
+        }
+        try {
+            return new long[]{TAG_BOOLEAN, ((Boolean) ValueType.BOOLEAN.parse(value)) ? 1 : 0};
+        } catch (IllegalArgumentException e) {
+            return new long[]{TAG_STRING, 0};
+        }
+    }
+
+    private static void replace(File target, byte[] bytes) throws IOException {
+        File dir = target.getAbsoluteFile().getParentFile();
+        File tmp = File.createTempFile(".snapshot", ".tmp", dir);
+        try {
+            FileOutputStream fos = new FileOutputStream(tmp);
+            DataOutputStream os = new DataOutputStream(new BufferedOutputStream(fos));
+            try {
+                os.write(bytes);
+                os.flush();
+                fos.getFD().sync();
+            } finally {
+                os.close();
+            }
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    /**
+     * Map and verify a snapshot
+     * @param file snapshot file
+     * @return properties by file name, in snapshot order
+     * @throws IOException if the file can't be read, or is not a valid snapshot
+     */
+    static Map<String, PropertySet> read(File file) throws IOException {
+        ByteBuffer buf;
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("snapshot larger than 2GB : " + file);
+            }
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            raf.close();
+        }
+
+        if (buf.limit() < HEADER_SIZE || buf.getInt(0) != MAGIC) {
+            throw new IOException("not a configuration snapshot : " + file);
+        }
+        if (buf.getInt(4) != VERSION) {
+            throw new IOException("unsupported snapshot version " + buf.getInt(4) + " : " + file);
+        }
+        CRC32 crc = new CRC32();
+        ByteBuffer body = buf.duplicate();
+        body.position(12);
+        crc.update(body);
+        if ((int) crc.getValue() != buf.getInt(8)) {
+            throw new IOException("corrupted snapshot : " + file);
+        }
+
+        int files = buf.getInt(12);
+        int stringCount = buf.getInt(16);
+        int stringsStart = HEADER_SIZE + files * FILE_SIZE;
+        SnapshotStrings strings = new SnapshotStrings(buf, stringsStart, stringsStart + (stringCount + 1) * 4,
+                stringCount);
+
+        LinkedHashMap<String, PropertySet> sets = new LinkedHashMap<String, PropertySet>();
+        for (int f = 0; f < files; f++) {
+            int at = HEADER_SIZE + f * FILE_SIZE;
+            int entries = buf.getInt(at + 4);
+            SnapshotPropertyStore store = new SnapshotPropertyStore(buf, strings, buf.getInt(at + 8), entries);
+            sets.put(strings.get(buf.getInt(at)), new PropertySet(store, null, (long) entries * ENTRY_SIZE));
+        }
+        return sets;
+    }
+
+    /**
+     * Strings of a mapped snapshot, decoded on first access
+     */
+    static final class SnapshotStrings {
+        private final ByteBuffer buf;
+        private final int offsets;
+        private final int data;
+
+        // racy writes are harmless : every thread decodes the same immutable String
+        private final String[] decoded;
+
+        SnapshotStrings(ByteBuffer buf, int offsets, int data, int count) {
+            this.buf = buf;
+            this.offsets = offsets;
+            this.data = data;
+            this.decoded = new String[count];
+        }
+
+        String get(int id) {
+            String s = this.decoded[id];
+            if (s == null) {
+                int start = this.buf.getInt(this.offsets + id * 4);
+                int end = this.buf.getInt(this.offsets + id * 4 + 4);
+                byte[] bytes = new byte[end - start];
+                ByteBuffer view = this.buf.duplicate();
+                view.position(this.data + start);
+                view.get(bytes);
+                s = new String(bytes, UTF_8);
+                this.decoded[id] = s;
+            }
+            return s;
+        }
+    }
+
+    /**
+     * Compile properties files into a snapshot<br>
+     * usage : ConfigSnapshot output.snap [name=]file.properties ...<br>
+     * each file is stored under the given name, or its path if none.
+     * @param args output file, then the properties files
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage : ConfigSnapshot output.snap [name=]file.properties ...");
+            System.exit(1);
+        }
+
+        Configuration config = Configuration.newInstance();
+        LinkedHashMap<String, Properties> files = new LinkedHashMap<String, Properties>();
+        for (String arg : Arrays.asList(args).subList(1, args.length)) {
+            int split = arg.indexOf('=');
+            String name = split < 0 ? arg : arg.substring(0, split);
+            String path = split < 0 ? arg : arg.substring(split + 1);
+            config.loadProperties(path, Configuration.PHYSICALPATH_LOAD);
+            files.put(name, config.getProperties(path));
+        }
+        write(files, new File(args[0]));
+        System.out.println("compiled " + files.size() + " files into : " + args[0]);
+    }
+}
@@ -2,9 +2,17 @@ package com.skplanet.nlp.config;
 
 import java.io.IOException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Configuration Interface<br>
+ * <br>
+ * the typed getters default to parsing {@link #readProperty(String, String)} on every call,
+ * {@link Configuration} parses once per load.<br>
  *
  * Created by Donghun Shin<br>
  * Contact: donghun.shin@sk.com, sindongboy@gmail.com<br>
@@ -36,10 +44,132 @@ public interface Configurable {
      */
     public String readProperty(String propName, String field);
 
+    /**
+     * Read property value as a {@link CharSequence}, without copying when possible
+     * @param propName property file name
+     * @param field field name
+     * @return value for the field
+     */
+    public default CharSequence readPropertyChars(String propName, String field) {
+        return readProperty(propName, field);
+    }
+
+    /**
+     * Read UTF-8 encoded property value, without copying when possible
+     * @param propName property file name
+     * @param field field name
+     * @return read-only buffer of the value
+     */
+    public default ByteBuffer readPropertyBytes(String propName, String field) {
+        String value = readProperty(propName, field);
+        return value == null ? null : ByteBuffer.wrap(value.getBytes(Charset.forName("UTF-8"))).asReadOnlyBuffer();
+    }
+
     /**
      * Get all the property field names
      * @param propName name of the properties file
      * @return list of the field contained in the properties file
      */
     public String[] propertyNames(String propName);
+
+    /**
+     * Read an int property
+     * @param propName property file name
+     * @param field field name
+     * @param defaultValue value returned when the field doesn't exist
+     * @return int value for given field
+     */
+    public default int getInt(String propName, String field, int defaultValue) {
+        String value = readProperty(propName, field);
+        return value == null ? defaultValue : (Integer) ValueType.INT.parse(value);
+    }
+
+    /**
+     * Read a long property
+     * @param propName property file name
+     * @param field field name
+     * @param defaultValue value returned when the field doesn't exist
+     * @return long value for given field
+     */
+    public default long getLong(String propName, String field, long defaultValue) {
+        String value = readProperty(propName, field);
+        return value == null ? defaultValue : (Long) ValueType.LONG.parse(value);
+    }
+
+    /**
+     * Read a double property
+     * @param propName property file name
+     * @param field field name
+     * @param defaultValue value returned when the field doesn't exist
+     * @return double value for given field
+     */
+    public default double getDouble(String propName, String field, double defaultValue) {
+        String value = readProperty(propName, field);
+        return value == null ? defaultValue : (Double) ValueType.DOUBLE.parse(value);
+    }
+
+    /**
+     * Read a boolean property (true/false, yes/no, on/off, 1/0)
+     * @param propName property file name
+     * @param field field name
+     * @param defaultValue value returned when the field doesn't exist
+     * @return boolean value for given field
+     */
+    public default boolean getBoolean(String propName, String field, boolean defaultValue) {
+        String value = readProperty(propName, field);
+        return value == null ? defaultValue : (Boolean) ValueType.BOOLEAN.parse(value);
+    }
+
+    /**
+     * Read a duration property such as "30s", "500ms" or "2h".
+     * a bare number is milliseconds.
+     * @param propName property file name
+     * @param field field name
+     * @param unit unit of the returned value
+     * @param defaultValue value returned when the field doesn't exist, in {@code unit}
+     * @return duration for given field, in {@code unit}
+     */
+    public default long getDuration(String propName, String field, TimeUnit unit, long defaultValue) {
+        String value = readProperty(propName, field);
+        return value == null ? defaultValue
+                : unit.convert((Long) ValueType.DURATION.parse(value), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Read a byte size property such as "512MB" or "4k".
+     * multiples of 1024, a bare number is bytes.
+     * @param propName property file name
+     * @param field field name
+     * @param defaultValue value returned when the field doesn't exist
+     * @return size in bytes for given field
+     */
+    public default long getBytes(String propName, String field, long defaultValue) {
+        String value = readProperty(propName, field);
+        return value == null ? defaultValue : (Long) ValueType.BYTES.parse(value);
+    }
+
+    /**
+     * Read an enum property
+     * @param propName property file name
+     * @param field field name
+     * @param type enum class
+     * @param defaultValue value returned when the field doesn't exist
+     * @return enum constant for given field
+     */
+    public default <E extends Enum<E>> E getEnum(String propName, String field, Class<E> type, E defaultValue) {
+        String value = readProperty(propName, field);
+        return value == null ? defaultValue : PropertySet.parseEnum(value, type);
+    }
+
+    /**
+     * Read a comma separated list property
+     * @param propName property file name
+     * @param field field name
+     * @return unmodifiable list of trimmed, non-empty items, empty if the field doesn't exist
+     */
+    @SuppressWarnings("unchecked")
+    public default List<String> getList(String propName, String field) {
+        String value = readProperty(propName, field);
+        return value == null ? Collections.<String>emptyList() : (List<String>) ValueType.LIST.parse(value);
+    }
 }
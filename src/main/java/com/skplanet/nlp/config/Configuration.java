@@ -3,12 +3,35 @@ package com.skplanet.nlp.config;
 
 import org.apache.hadoop.fs.*;
 import org.apache.hadoop.io.IOUtils;
+import org.apache.zookeeper.data.Stat;
 
 import java.io.*;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
 
 /**
  * Simple Classpath based Configuration Class <br>
@@ -31,22 +54,173 @@ public class Configuration implements Configurable{
     public static final int PHYSICALPATH_LOAD = 2;
     public static final int HDFSPATH_LOAD = 3;
 
+    /**
+     * physical path, memory-mapped and indexed in place instead of parsed into a map.<br>
+     * for very large files : loading only records key and value offsets,
+     * and values are decoded on first read. the file is read as UTF-8,
+     * and must be replaced by renaming a new file over it, not rewritten in place.
+     */
+    public static final int MAPPED_PHYSICALPATH_LOAD = 4;
+
+    /**
+     * znode holding a properties file, e.g. "zk://host1:2181,host2:2181/config/sample.properties".<br>
+     * the znode is watched : changes are pushed by ZooKeeper and reloaded in the background right away,
+     * without polling. with {@link #setLocalCacheDir(File)}, the last known good copy is loaded
+     * when the ensemble can't be reached.
+     */
+    public static final int ZOOKEEPER_LOAD = 5;
+
     private static final String HDFS_PREFIX = "hdfs://";
 
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Configuration Instance, created by the class loader on first access of {@link Holder}
+     */
+    private static final class Holder {
+        static final Configuration INSTANCE = new Configuration();
+    }
+
+    /**
+     * Properties, published as an immutable snapshot.<br>
+     * every load builds a new map and swaps it in, so readers never take a lock
+     * and never see a half-loaded file.
+     */
+    private final AtomicReference<Map<String, PropertySet>> properties;
+
+    /**
+     * {@link ConfigKey} handles per properties file, refreshed on every load of that file
+     */
+    private final ConcurrentHashMap<String, CopyOnWriteArrayList<WeakReference<ConfigKey<?>>>> keys;
+
+    /**
+     * Handles of {@link #keys} that were garbage collected, purged on the next register or refresh
+     */
+    private final ReferenceQueue<ConfigKey<?>> clearedKeys = new ReferenceQueue<ConfigKey<?>>();
+
+    /**
+     * Change listener registered for one properties file, or all of them
+     */
+    private static final class ListenerEntry {
+        final String propName;
+        final ConfigChangeListener listener;
+
+        ListenerEntry(String propName, ConfigChangeListener listener) {
+            this.propName = propName;
+            this.listener = listener;
+        }
+    }
+
+    /**
+     * Change listeners
+     */
+    private final CopyOnWriteArrayList<ListenerEntry> listeners;
+
+    /**
+     * Executor for change listeners : a single daemon thread by default,
+     * so a slow listener can't stall loading or reading.
+     */
+    private volatile Executor listenerExecutor;
+
+    /**
+     * Changes not delivered yet, per properties file in the order they were fired : {before, after}.<br>
+     * a file reloaded again before its change was delivered gets one change from the oldest to the latest
+     * properties, so a slow listener makes events coalesce rather than queue up or get dropped.
+     */
+    private final LinkedHashMap<String, PropertySet[]> pendingChanges = new LinkedHashMap<String, PropertySet[]>();
+
+    /**
+     * Whether a delivery of {@link #pendingChanges} is submitted to the executor, guarded by {@link #pendingChanges}
+     */
+    private boolean deliveryScheduled = false;
+
+    /**
+     * Pooled HDFS file systems and shared Hadoop configuration, created on first HDFS access
+     */
+    private volatile HdfsFileSystemPool hdfsPool = null;
+
+    /**
+     * Pools replaced by {@link #setHadoopConfiguration}, still used by loads in flight or shared writers.
+     * closed on {@link #shutdown()}, guarded by this.
+     */
+    private final ArrayList<HdfsFileSystemPool> retiredPools = new ArrayList<HdfsFileSystemPool>();
+
+    /**
+     * Compare HDFS checksums, not only modification time and length, before skipping a reload
+     */
+    private volatile boolean verifyHdfsChecksum = false;
+
+    /**
+     * ZooKeeper connections by connect string, created on first {@link #ZOOKEEPER_LOAD}
+     */
+    private final ConcurrentHashMap<String, ZooKeeperSource> zkSources = new ConcurrentHashMap<String, ZooKeeperSource>();
+
+    /**
+     * ZooKeeper session timeout, also how long loads wait for a new connection, in milliseconds
+     */
+    private volatile int zkSessionTimeout = 30000;
+
+    /**
+     * Local copies of HDFS and ZooKeeper files, null if disabled
+     */
+    private volatile LocalConfigCache localCache = null;
+
+    /**
+     * Background checks for newer versions of locally cached files, created on first use
+     */
+    private volatile Executor refreshExecutor = null;
+
+    /**
+     * Files served from the local cache and not published yet : file name -> load mode.<br>
+     * the background check is scheduled once they are published, so it doesn't find them unloaded
+     * and serve the local copy again.
+     */
+    private final ConcurrentHashMap<String, Integer> servedFromCache = new ConcurrentHashMap<String, Integer>();
+
+    /**
+     * Access and load metrics, null if disabled
+     */
+    private volatile ConfigMetrics metrics = null;
+
+    /**
+     * What reads do on a miss
+     */
+    private volatile MissPolicy missPolicy = MissPolicy.RETURN_NULL;
+
+    /**
+     * Value returned on a miss with {@link MissPolicy#RETURN_DEFAULT}
+     */
+    private volatile String missDefault = null;
+
+    /**
+     * Where misses are reported, null to report nothing
+     */
+    private volatile MissReporter missReporter = new RateLimitedMissReporter(10, TimeUnit.SECONDS);
+
+    /**
+     * Number of misses
+     */
+    private final LongAdder missCount = new LongAdder();
+
+    /**
+     * Layer stacks by name
+     */
+    private final ConcurrentHashMap<String, LayerStack> layerStacks = new ConcurrentHashMap<String, LayerStack>();
+
     /**
-     * Configuration Instance
+     * Resolve ${...} references while loading
      */
-    private static Configuration instance = null;
+    private volatile boolean interpolation = false;
 
     /**
-     * Properties
+     * Keep loaded keys and values outside the heap
      */
-    private HashMap<String, Properties> properties = null;
+    private volatile boolean offHeap = false;
 
     /**
      * Classpath for current configuration files
      */
-    private String BASE_DIR = null;
+    private volatile String BASE_DIR = null;
 
 
     /**
@@ -54,20 +228,48 @@ public class Configuration implements Configurable{
      * @return instance of {@link Configuration}
      */
     public static Configuration getInstance() {
-        if (instance == null) {
-            // method synchronized
-            synchronized (Configuration.class) {
-                instance = new Configuration();
-            }
-        }
-        return instance;
+        // lazy and thread safe : class initialization is done exactly once by the JVM
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Create a new, isolated {@link Configuration}, not shared with {@link #getInstance()}.<br>
+     * useful for separate tenants or tests that must not see each other's properties.
+     * @return new instance of {@link Configuration}
+     */
+    public static Configuration newInstance() {
+        return new Configuration();
     }
 
     /**
-     * prevent any other classes from instantiating
+     * prevent any other classes from instantiating, use {@link #getInstance()} or {@link #newInstance()}
      */
     private Configuration() {
-        this.properties = new HashMap<String, Properties>();
+        this.properties = new AtomicReference<Map<String, PropertySet>>(
+                Collections.<String, PropertySet>emptyMap());
+        this.keys = new ConcurrentHashMap<String, CopyOnWriteArrayList<WeakReference<ConfigKey<?>>>>();
+        this.listeners = new CopyOnWriteArrayList<ListenerEntry>();
+        this.listenerExecutor = defaultListenerExecutor();
+    }
+
+    /**
+     * Create the default executor for change listeners.<br>
+     * at most one delivery is submitted at a time, pending changes are coalesced per file meanwhile.
+     * @return executor
+     */
+    private static Executor defaultListenerExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "config-listener");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
     /**
@@ -78,6 +280,74 @@ public class Configuration implements Configurable{
         return this.BASE_DIR;
     }
 
+    /**
+     * Get the pool of HDFS file systems used by {@link #HDFSPATH_LOAD}, creating it on first use
+     * @return file system pool
+     */
+    public HdfsFileSystemPool getFileSystemPool() {
+        HdfsFileSystemPool pool = this.hdfsPool;
+        if (pool == null) {
+            synchronized (this) {
+                pool = this.hdfsPool;
+                if (pool == null) {
+                    pool = new HdfsFileSystemPool();
+                    this.hdfsPool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Set the Hadoop configuration used by {@link #HDFSPATH_LOAD}.<br>
+     * file systems pooled with the previous configuration are not used for new loads anymore,
+     * but stay open for the loads in flight and the writers sharing them until {@link #shutdown()}.
+     * @param conf Hadoop configuration
+     */
+    public synchronized void setHadoopConfiguration(org.apache.hadoop.conf.Configuration conf) {
+        if (this.hdfsPool != null) {
+            this.retiredPools.add(this.hdfsPool);
+        }
+        this.hdfsPool = new HdfsFileSystemPool(conf);
+    }
+
+    /**
+     * Release the resources held for loading, i.e. pooled HDFS file systems and ZooKeeper sessions.<br>
+     * loaded properties stay readable, but ZooKeeper changes are not pushed anymore.
+     * a later HDFS or ZooKeeper load connects again.
+     */
+    public void shutdown() {
+        ArrayList<HdfsFileSystemPool> old;
+        synchronized (this) {
+            old = new ArrayList<HdfsFileSystemPool>(this.retiredPools);
+            if (this.hdfsPool != null) {
+                old.add(this.hdfsPool);
+            }
+            this.retiredPools.clear();
+            this.hdfsPool = null;
+        }
+        for (HdfsFileSystemPool pool : old) {
+            pool.close();
+        }
+        for (String connectString : this.zkSources.keySet()) {
+            ZooKeeperSource source = this.zkSources.remove(connectString);
+            if (source != null) {
+                source.close();
+            }
+        }
+    }
+
+    /**
+     * Set the ZooKeeper session timeout, also how long after connecting to an ensemble
+     * {@link #ZOOKEEPER_LOAD} waits for the connection before falling back to the local copy.
+     * later loads fall back right away while disconnected. applies to ensembles connected from now on.
+     * @param time time, 30 seconds by default
+     * @param unit unit of {@code time}
+     */
+    public void setZooKeeperSessionTimeout(long time, TimeUnit unit) {
+        this.zkSessionTimeout = (int) Math.max(1, Math.min(Integer.MAX_VALUE, unit.toMillis(time)));
+    }
+
     /**
      * Get resource information including path and contents for the given resource file
      * @param fileName resource name
@@ -106,6 +376,7 @@ public class Configuration implements Configurable{
                 url = cl.getResource(fileName);
                 break;
             case Configuration.PHYSICALPATH_LOAD:
+            case Configuration.MAPPED_PHYSICALPATH_LOAD:
                 try {
                     url = new File(fileName).toURI().toURL();
                 } catch (MalformedURLException e) {
@@ -115,25 +386,61 @@ public class Configuration implements Configurable{
                 break;
             case Configuration.HDFSPATH_LOAD:
                 try {
-                    org.apache.hadoop.conf.Configuration conf = new org.apache.hadoop.conf.Configuration();
-                    conf.set("fs.hdfs.impl", org.apache.hadoop.hdfs.DistributedFileSystem.class.getName());
-                    conf.set("fs.file.impl", org.apache.hadoop.fs.LocalFileSystem.class.getName());
-                    try {
-                        URL.setURLStreamHandlerFactory(new FsUrlStreamHandlerFactory(conf));
-                    } catch (Error e) {
-
-                    }
+                    getFileSystemPool().installUrlStreamHandler();
                     url = new URL(fileName);
                 } catch (Exception e) {
                     e.printStackTrace();
                     return null;
                 }
                 break;
+            case Configuration.ZOOKEEPER_LOAD:
+                if (!fileName.startsWith(ZooKeeperSource.PREFIX)
+                        || fileName.indexOf('/', ZooKeeperSource.PREFIX.length()) < 0) {
+                    System.err.println("[WARNING] invalid prefix of znode path for zookeeper : " + fileName);
+                    return null;
+                }
+                try {
+                    url = new URL(null, fileName, new ZooKeeperUrlHandler());
+                } catch (MalformedURLException e) {
+                    e.printStackTrace();
+                    return null;
+                }
+                break;
         }
 
         return url;
     }
 
+    /**
+     * Opens the "zk://" URLs of {@link #getResource(String, int)}, reading the znode data without watching it
+     */
+    private final class ZooKeeperUrlHandler extends URLStreamHandler {
+        @Override
+        protected void parseURL(URL u, String spec, int start, int limit) {
+            // the authority is a comma separated host:port list, kept as is
+            int from = start + 2;
+            int slash = spec.indexOf('/', from);
+            setURL(u, u.getProtocol(), null, -1, spec.substring(from, slash), null, spec.substring(slash, limit),
+                    null, null);
+        }
+
+        @Override
+        protected URLConnection openConnection(final URL u) {
+            return new URLConnection(u) {
+                @Override
+                public void connect() {
+                    this.connected = true;
+                }
+
+                @Override
+                public InputStream getInputStream() throws IOException {
+                    byte[] data = zooKeeper(u.getAuthority()).peek(u.getPath());
+                    return new ByteArrayInputStream(data);
+                }
+            };
+        }
+    }
+
     /**
      * Get {@link URL} for resources.
      * @param fileNames resource names
@@ -157,13 +464,95 @@ public class Configuration implements Configurable{
 
     }
 
+    /**
+     * Load all the properties files of a compiled {@link ConfigSnapshot} at once.<br>
+     * the snapshot is memory-mapped and read in place, nothing is parsed.
+     * files are published together, under the names stored in the snapshot,
+     * and replace any file of the same name loaded before.
+     * with metrics enabled, each file records the duration of the whole snapshot load.
+     * @param fileName snapshot file path
+     * @throws IOException if the snapshot can't be read or is corrupted, nothing is published then
+     */
+    public void loadSnapshot(String fileName) throws IOException {
+        long start = System.nanoTime();
+        Map<String, PropertySet> sets = ConfigSnapshot.read(new File(fileName));
+
+        LinkedHashMap<String, PropertySet> loaded = new LinkedHashMap<String, PropertySet>();
+        for (Map.Entry<String, PropertySet> entry : sets.entrySet()) {
+            loaded.put(entry.getKey(), interpolate(entry.getKey(), entry.getValue()));
+        }
+
+        ConfigMetrics m = this.metrics;
+        if (m != null) {
+            long nanos = System.nanoTime() - start;
+            Map<String, PropertySet> current = this.properties.get();
+            for (Map.Entry<String, PropertySet> entry : loaded.entrySet()) {
+                m.recordLoad(entry.getKey(), nanos, entry.getValue().bytes(), current.containsKey(entry.getKey()));
+            }
+        }
+        publishAll(loaded);
+    }
+
+    /**
+     * Copy all the loaded properties files, for {@link ConfigSnapshot#write(Configuration, File)}
+     * @return properties by file name
+     */
+    Map<String, Properties> snapshotProperties() {
+        LinkedHashMap<String, Properties> files = new LinkedHashMap<String, Properties>();
+        for (Map.Entry<String, PropertySet> entry : this.properties.get().entrySet()) {
+            files.put(entry.getKey(), entry.getValue().toProperties());
+        }
+        return files;
+    }
+
     /**
      * Get the {@link Properties}
      * @param fileName
-     * @return properties object
+     * @return copy of the properties, changes to it are not reflected in this {@link Configuration}
      */
     public Properties getProperties(String fileName) {
-        return this.properties.get(fileName);
+        PropertySet set = this.properties.get().get(fileName);
+        if (set == null) {
+            return null;
+        }
+        return set.toProperties();
+    }
+
+    /**
+     * Start recording access and load metrics.<br>
+     * per field read and miss counts, and per file load count, duration and size.
+     * @param jmxName name for the "com.skplanet.nlp.config:type=ConfigMetrics" MXBean, null to skip JMX
+     * @return metrics
+     */
+    public synchronized ConfigMetrics enableMetrics(String jmxName) {
+        ConfigMetrics m = this.metrics;
+        if (m == null) {
+            m = new ConfigMetrics();
+            this.metrics = m;
+        }
+        if (jmxName != null) {
+            m.register(jmxName);
+        }
+        return m;
+    }
+
+    /**
+     * Stop recording metrics and unregister the MXBean
+     */
+    public synchronized void disableMetrics() {
+        ConfigMetrics m = this.metrics;
+        this.metrics = null;
+        if (m != null) {
+            m.unregister();
+        }
+    }
+
+    /**
+     * Get the metrics
+     * @return metrics, null if not enabled
+     */
+    public ConfigMetrics getMetrics() {
+        return this.metrics;
     }
 
     /**
@@ -179,8 +568,18 @@ public class Configuration implements Configurable{
 
     @Override
     public void loadProperties(String fileName, int mode) throws IOException, NullPointerException {
+        publish(fileName, fetchRecorded(fileName, mode));
+    }
+
+    /**
+     * Read and parse the properties file, without publishing it
+     * @param fileName properties file name
+     * @param mode load mode
+     * @return parsed properties
+     */
+    private PropertySet fetch(String fileName, int mode) throws IOException, NullPointerException {
         Properties prop = null;
-        InputStream is = null;
+        long bytes = 0;
 
         switch (mode) {
             // classpath based
@@ -197,115 +596,1131 @@ public class Configuration implements Configurable{
 
                 prop = new Properties();
                 this.BASE_DIR = url.getPath();
-                is = url.openStream();
-                prop.load(is);
-                is.close();
+                CountingInputStream counting = new CountingInputStream(url.openStream());
+                try {
+                    prop.load(counting);
+                } finally {
+                    counting.close();
+                }
+                bytes = counting.count;
                 break;
             // physical path based
             case Configuration.PHYSICALPATH_LOAD:
                 this.BASE_DIR = fileName;
                 prop = new Properties();
-                prop.load(new BufferedReader(new FileReader(new File(fileName))));
+                File file = new File(fileName);
+                bytes = file.length();
+                Reader reader = new BufferedReader(new FileReader(file));
+                try {
+                    prop.load(reader);
+                } finally {
+                    reader.close();
+                }
                 break;
+            // physical path based, memory-mapped
+            case Configuration.MAPPED_PHYSICALPATH_LOAD:
+                this.BASE_DIR = fileName;
+                File mapped = new File(fileName);
+                return new PropertySet(MappedPropertyStore.open(mapped), null, mapped.length());
             // hdfs path based
             case Configuration.HDFSPATH_LOAD:
                 if(!fileName.startsWith(Configuration.HDFS_PREFIX)) {
                     System.err.println("[WARNING] invalid prefix of file path for hdfs : " + fileName);
                     throw new NullPointerException();
                 }
-
-                try {
-                    org.apache.hadoop.conf.Configuration conf = new org.apache.hadoop.conf.Configuration();
-                    conf.set("fs.hdfs.impl", org.apache.hadoop.hdfs.DistributedFileSystem.class.getName());
-                    conf.set("fs.file.impl", org.apache.hadoop.fs.LocalFileSystem.class.getName());
-                    URI uri = new URI(fileName);
-                    FileSystem hdfs = FileSystem.get(uri, conf);
-
-                    try {
-                        Path path = new Path(uri);
-                        is = hdfs.open(path);
-                        prop = new Properties();
-                        this.BASE_DIR = uri.getPath();
-                        prop.load(is);
-                    } finally {
-                        IOUtils.closeStream(is);
-                    }
-                } catch (Exception e) {
-                    System.err.println("[WARNING] failure to initialize for hdfs : " + fileName);
-                    e.printStackTrace();
+                return fetchHdfs(fileName);
+            // znode
+            case Configuration.ZOOKEEPER_LOAD:
+                if (!fileName.startsWith(ZooKeeperSource.PREFIX)
+                        || fileName.indexOf('/', ZooKeeperSource.PREFIX.length()) < 0) {
+                    System.err.println("[WARNING] invalid prefix of znode path for zookeeper : " + fileName);
                     throw new NullPointerException();
                 }
-                break;
+                return fetchZooKeeper(fileName);
+            default:
+                System.err.println("[WARNING] unknown load mode : " + mode);
+                throw new NullPointerException();
         }
 
-        this.properties.put(fileName, prop);
+        return new PropertySet(prop, bytes);
     }
 
     /**
-     * Get the property value for the given field
-     * @param propName property file name
-     * @param field field name
-     * @return value for a given property field
+     * {@link #fetch(String, int)}, recording duration and size to the metrics if enabled
+     * @param fileName properties file name
+     * @param mode load mode
+     * @return parsed properties
      */
-    @Override
-    public String readProperty(String propName, String field) {
-        if (this.properties.containsKey(propName)) {
-            String value;
-            try {
-                value = this.properties.get(propName).getProperty(field);
-                return value;
-            } catch (NullPointerException e) {
-                System.err.println("[WARNING] no property exist : " + field);
-                return null;
-            }
-        } else {
-            System.err.println("[WARNING] no property is initialized");
+    private PropertySet fetchRecorded(String fileName, int mode) throws IOException, NullPointerException {
+        ConfigMetrics m = this.metrics;
+        if (m == null) {
+            return store(interpolate(fileName, fetch(fileName, mode)));
+        }
+
+        PropertySet before = this.properties.get().get(fileName);
+        long start = System.nanoTime();
+        try {
+            PropertySet set = store(interpolate(fileName, fetch(fileName, mode)));
+            m.recordLoad(fileName, System.nanoTime() - start, set == before ? 0 : set.bytes(), before != null);
+            return set;
+        } catch (IOException e) {
+            m.recordFailure(fileName);
+            throw e;
+        } catch (RuntimeException e) {
+            m.recordFailure(fileName);
+            throw e;
         }
-        return null;
     }
 
+    /**
+     * Resolve variable references if enabled, see {@link #setInterpolationEnabled(boolean)}
+     * @param fileName properties file name
+     * @param set loaded properties
+     * @return properties with references resolved
+     */
+    private PropertySet interpolate(String fileName, PropertySet set) throws IOException {
+        if (!this.interpolation) {
+            return set;
+        }
+        return set.interpolated(this.properties.get().get(fileName));
+    }
 
     /**
-     * Get the fields list for a given {@link Properties} file
-     * @param propName name of the properties file
-     * @return array of the fields contained in the properties file.
+     * Move the loaded properties outside the heap if enabled, see {@link #setOffHeapStorage(boolean)}
+     * @param set loaded properties
+     * @return properties to publish
      */
-    @Override
-    public String[] propertyNames(String propName) {
-        ArrayList<String> rList = null;
-        if (this.properties.containsKey(propName)) {
-            Enumeration e = this.properties.get(propName).propertyNames();
-            rList = new ArrayList<String>();
-            while (e.hasMoreElements()) {
-                rList.add((String)e.nextElement());
+    private PropertySet store(PropertySet set) {
+        return this.offHeap ? set.offHeap() : set;
+    }
+
+    /**
+     * Keep the keys and values of files loaded from now on UTF-8 encoded in direct buffers,
+     * with an off-heap hash index, instead of {@link String}s in a map.<br>
+     * for many very large files : the heap and the garbage collector only see a few objects per file.
+     * in exchange, {@link #readProperty(String, String)} decodes a new {@link String} on every call :
+     * read in place with {@link #readPropertyChars(String, String)} or {@link #readPropertyBytes(String, String)},
+     * or keep the value with a {@link ConfigKey}.
+     * files loaded with {@link #MAPPED_PHYSICALPATH_LOAD} or {@link #loadSnapshot(String)} are already outside the heap.
+     * direct memory is limited by -XX:MaxDirectMemorySize.
+     * @param enabled true to store files loaded from now on outside the heap, off by default
+     */
+    public void setOffHeapStorage(boolean enabled) {
+        this.offHeap = enabled;
+    }
+
+    /**
+     * Resolve variable references while loading: ${other.key} of the same file,
+     * ${env:VAR} and ${sys:prop}. "$${" is a literal "${".<br>
+     * references are resolved once per load, so reads stay plain lookups.
+     * on reload, only the changed fields and the fields depending on them are resolved again.
+     * a load with cyclic references fails with {@link IOException}.
+     * @param enabled true to resolve references in files loaded from now on, off by default
+     */
+    public void setInterpolationEnabled(boolean enabled) {
+        this.interpolation = enabled;
+    }
+
+    /**
+     * Counts the bytes read from a stream
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        long count = 0;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
             }
-        } else {
-            System.err.println("[WARNING] no property is initialized");
-            return null;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
         }
-        return rList.toArray(new String[rList.size()]);
     }
 
     /**
-     * Get the fields list for a given {@link Properties} file
-     * @param propName name of the properties file
-     * @return list of the fields contained in the properties file.
+     * Read and parse a properties file on HDFS.<br>
+     * with a local cache directory, the first load is served from the local copy if there is one,
+     * and HDFS is checked for a newer version in the background.
+     * if HDFS can't be reached, the loaded or locally cached properties are kept.
+     * @param fileName hdfs file path
+     * @return parsed properties
      */
-    public List<String> propertyNamesList(String propName) {
-        ArrayList rList = null;
-        if(!this.properties.containsKey(propName)) {
-            System.err.println("[WARNING] no property is initialized");
-            return null;
-        } else {
-            Enumeration e = ((Properties)this.properties.get(propName)).propertyNames();
-            rList = new ArrayList();
+    private PropertySet fetchHdfs(String fileName) throws NullPointerException {
+        LocalConfigCache cache = this.localCache;
+        PropertySet current = this.properties.get().get(fileName);
+
+        if (cache != null && current == null) {
+            PropertySet cached = cache.load(fileName);
+            if (cached != null) {
+                this.BASE_DIR = URI.create(fileName).getPath();
+                // checked against HDFS in the background once published
+                this.servedFromCache.put(fileName, Configuration.HDFSPATH_LOAD);
+                return cached;
+            }
+        }
+
+        InputStream is = null;
+        try {
+            URI uri = new URI(fileName);
+            FileSystem hdfs = getFileSystemPool().get(uri);
+
+            Path path = new Path(uri);
+            SourceStamp stamp = hdfsStamp(hdfs, path, current == null ? null : current.stamp());
+            if (current != null && stamp.sameAs(current.stamp())) {
+                // unchanged, skip download and parsing
+                return current;
+            }
+
+            byte[] bytes;
+            try {
+                is = hdfs.open(path);
+                ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.min(stamp.length, 1 << 24));
+                byte[] buffer = new byte[8192];
+                int n;
+                while ((n = is.read(buffer)) > 0) {
+                    out.write(buffer, 0, n);
+                }
+                bytes = out.toByteArray();
+            } finally {
+                IOUtils.closeStream(is);
+            }
+
+            Properties prop = LocalConfigCache.parse(bytes);
+            this.BASE_DIR = uri.getPath();
+            if (cache != null) {
+                cache.store(fileName, bytes, stamp);
+            }
+            return new PropertySet(prop, stamp, bytes.length);
+        } catch (Exception e) {
+            System.err.println("[WARNING] failure to initialize for hdfs : " + fileName);
+            e.printStackTrace();
+            if (cache != null) {
+                PropertySet fallback = current != null ? current : cache.load(fileName);
+                if (fallback != null) {
+                    System.err.println("[WARNING] using last known good copy of : " + fileName);
+                    return fallback;
+                }
+            }
+            throw new NullPointerException();
+        }
+    }
+
+    /**
+     * Read and parse a properties file stored as znode data, and watch the znode.<br>
+     * if the ensemble can't be reached, the loaded or locally cached properties are kept,
+     * and the file is reloaded once the connection is back.
+     * @param fileName "zk://" connect string and znode path
+     * @return parsed properties
+     */
+    private PropertySet fetchZooKeeper(String fileName) throws NullPointerException {
+        LocalConfigCache cache = this.localCache;
+        PropertySet current = this.properties.get().get(fileName);
 
-            while(e.hasMoreElements()) {
-                rList.add((String)e.nextElement());
+        int slash = fileName.indexOf('/', ZooKeeperSource.PREFIX.length());
+        String connectString = fileName.substring(ZooKeeperSource.PREFIX.length(), slash);
+        String path = fileName.substring(slash);
+        try {
+            Stat stat = new Stat();
+            byte[] bytes = zooKeeper(connectString).read(fileName, path, stat);
+            // the modification zxid identifies the version of the znode
+            SourceStamp stamp = new SourceStamp(stat.getMzxid(), bytes.length, null);
+            if (current != null && stamp.sameAs(current.stamp())) {
+                // unchanged, skip parsing
+                return current;
             }
 
-            return rList;
+            Properties prop = LocalConfigCache.parse(bytes);
+            this.BASE_DIR = path;
+            if (cache != null) {
+                cache.store(fileName, bytes, stamp);
+            }
+            return new PropertySet(prop, stamp, bytes.length);
+        } catch (Exception e) {
+            System.err.println("[WARNING] failure to load from zookeeper : " + fileName);
+            e.printStackTrace();
+            PropertySet fallback = current;
+            if (fallback == null && cache != null) {
+                fallback = cache.load(fileName);
+            }
+            if (fallback != null) {
+                System.err.println("[WARNING] using last known good copy of : " + fileName);
+                return fallback;
+            }
+            throw new NullPointerException();
+        }
+    }
+
+    /**
+     * Get the connection to the given ensemble, connecting on first use
+     * @param connectString comma separated host:port list
+     * @return connection
+     */
+    private ZooKeeperSource zooKeeper(String connectString) throws IOException {
+        ZooKeeperSource source = this.zkSources.get(connectString);
+        if (source != null) {
+            return source;
+        }
+
+        ZooKeeperSource created = new ZooKeeperSource(connectString, this.zkSessionTimeout,
+                new ZooKeeperSource.Listener() {
+                    @Override
+                    public void changed(String fileName) {
+                        refreshInBackground(fileName, Configuration.ZOOKEEPER_LOAD);
+                    }
+                });
+        source = this.zkSources.putIfAbsent(connectString, created);
+        if (source != null) {
+            // lost the race, keep the other one
+            created.close();
+            return source;
+        }
+        return created;
+    }
+
+    /**
+     * Reload a file in the background : check HDFS for a newer version of a file served from the local cache,
+     * or read a changed znode
+     * @param fileName file name
+     * @param mode load mode
+     */
+    private void refreshInBackground(final String fileName, final int mode) {
+        Executor executor = this.refreshExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = this.refreshExecutor;
+                if (executor == null) {
+                    executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r, "config-refresh");
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+                    this.refreshExecutor = executor;
+                }
+            }
+        }
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    loadProperties(fileName, mode);
+                } catch (Exception e) {
+                    System.err.println("[WARNING] background refresh failed for : " + fileName);
+                }
+            }
+        });
+    }
+
+    /**
+     * Keep a local copy of every {@link #HDFSPATH_LOAD} and {@link #ZOOKEEPER_LOAD} file in the given directory.<br>
+     * later starts load from the local copy first and check HDFS in the background,
+     * and still start from the last known good copy when HDFS or ZooKeeper is unreachable.
+     * @param dir local cache directory, null to disable
+     */
+    public void setLocalCacheDir(File dir) {
+        this.localCache = dir == null ? null : new LocalConfigCache(dir);
+    }
+
+    /**
+     * Get modification time, length and, if enabled, checksum of a file on HDFS.<br>
+     * the checksum is only fetched when modification time and length are the same as the loaded version,
+     * a file that differs in either is reloaded anyway.
+     * @param hdfs file system
+     * @param path file path
+     * @param loaded stamp of the loaded version, null if none
+     * @return stamp of the file
+     */
+    private SourceStamp hdfsStamp(FileSystem hdfs, Path path, SourceStamp loaded) throws IOException {
+        FileStatus status = hdfs.getFileStatus(path);
+        long modified = status.getModificationTime();
+        long length = status.getLen();
+        if (!this.verifyHdfsChecksum || loaded == null || loaded.modified != modified || loaded.length != length) {
+            return new SourceStamp(modified, length, null);
+        }
+
+        String checksum = null;
+        FileChecksum fc = hdfs.getFileChecksum(path);
+        if (fc != null) {
+            checksum = SourceStamp.encode(fc.getAlgorithmName(), fc.getBytes());
+        }
+        if (loaded.checksum == null) {
+            // first check since this version was loaded : its checksum is the reference from now on
+            loaded.setChecksum(checksum);
+        }
+        return new SourceStamp(modified, length, checksum);
+    }
+
+    /**
+     * Also compare HDFS checksums before skipping the reload of an unchanged {@link #HDFSPATH_LOAD} file.<br>
+     * by default, modification time and length are compared only.
+     * the checksum is fetched only when both are unchanged, and recorded on the first such check after a reload.
+     * @param verify true to compare checksums
+     */
+    public void setVerifyHdfsChecksum(boolean verify) {
+        this.verifyHdfsChecksum = verify;
+    }
+
+    /**
+     * Publish the parsed properties as a new snapshot.<br>
+     * copy-on-write: the current map is copied, updated and swapped in atomically.
+     * @param fileName properties file name
+     * @param set parsed properties
+     */
+    private void publish(String fileName, PropertySet set) {
+        publishAll(Collections.singletonMap(fileName, set));
+    }
+
+    /**
+     * Publish several parsed properties files as one new snapshot, readers see all of them or none
+     * @param sets parsed properties by file name
+     */
+    private void publishAll(Map<String, PropertySet> sets) {
+        Map<String, PropertySet> current;
+        Map<String, PropertySet> next;
+        HashMap<String, PropertySet> changed = new HashMap<String, PropertySet>();
+        do {
+            current = this.properties.get();
+            changed.clear();
+            for (Map.Entry<String, PropertySet> entry : sets.entrySet()) {
+                // unchanged files (e.g. skipped HDFS reloads) are not published again
+                if (current.get(entry.getKey()) != entry.getValue()) {
+                    changed.put(entry.getKey(), entry.getValue());
+                }
+            }
+            if (changed.isEmpty()) {
+                return;
+            }
+            HashMap<String, PropertySet> copy = new HashMap<String, PropertySet>(current);
+            copy.putAll(changed);
+            next = Collections.unmodifiableMap(copy);
+        } while (!this.properties.compareAndSet(current, next));
+
+        for (Map.Entry<String, PropertySet> entry : changed.entrySet()) {
+            updateLayers(entry.getKey(), current.get(entry.getKey()), entry.getValue());
+            refreshKeys(entry.getKey());
+            fireChange(entry.getKey(), current.get(entry.getKey()), entry.getValue());
+
+            Integer mode = this.servedFromCache.remove(entry.getKey());
+            if (mode != null) {
+                refreshInBackground(entry.getKey(), mode);
+            }
+        }
+    }
+
+    /**
+     * Load many properties files concurrently, see {@link #loadAll(List, int)}
+     * @param requests properties files and their load modes
+     * @return result per request, in request order
+     */
+    public List<LoadResult> loadAll(List<LoadRequest> requests) {
+        return loadAll(requests, Math.min(8, Runtime.getRuntime().availableProcessors() * 2));
+    }
+
+    /**
+     * Load many properties files concurrently.<br>
+     * files are fetched and parsed on a pool of at most {@code parallelism} threads,
+     * then all the loaded files are published at once, so readers never see a partial set.
+     * files that fail keep their previous properties, if any.
+     * @param requests properties files and their load modes
+     * @param parallelism maximum number of files fetched at the same time
+     * @return result per request, in request order
+     */
+    public List<LoadResult> loadAll(List<LoadRequest> requests, int parallelism) {
+        List<LoadResult> results = new ArrayList<LoadResult>(requests.size());
+        if (requests.isEmpty()) {
+            return results;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, requests.size())),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "config-loader");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+
+        List<Future<PropertySet>> futures = new ArrayList<Future<PropertySet>>(requests.size());
+        LinkedHashMap<String, PropertySet> loaded = new LinkedHashMap<String, PropertySet>();
+        try {
+            for (final LoadRequest request : requests) {
+                futures.add(executor.submit(new Callable<PropertySet>() {
+                    @Override
+                    public PropertySet call() throws Exception {
+                        return fetchRecorded(request.getFileName(), request.getMode());
+                    }
+                }));
+            }
+
+            for (int i = 0; i < requests.size(); i++) {
+                LoadRequest request = requests.get(i);
+                try {
+                    loaded.put(request.getFileName(), futures.get(i).get());
+                    results.add(new LoadResult(request, null));
+                } catch (ExecutionException e) {
+                    System.err.println("[WARNING] failure to load : " + request.getFileName());
+                    results.add(new LoadResult(request, e.getCause()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    results.add(new LoadResult(request, e));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        publishAll(loaded);
+        return results;
+    }
+
+    /**
+     * Notify the change listeners of {@code fileName}.<br>
+     * the change is queued in {@link #pendingChanges}, merged with a change of the same file not delivered yet,
+     * and the difference is computed on the listener executor, not on the loading thread.
+     * @param fileName properties file name
+     * @param before previous properties, null if the file was not loaded
+     * @param after new properties
+     */
+    private void fireChange(String fileName, PropertySet before, PropertySet after) {
+        if (before == after || !hasChangeListener(fileName)) {
+            return;
+        }
+
+        synchronized (this.pendingChanges) {
+            PropertySet[] pending = this.pendingChanges.get(fileName);
+            if (pending == null) {
+                this.pendingChanges.put(fileName, new PropertySet[]{before, after});
+            } else {
+                // not delivered yet : one change from the oldest to the latest properties
+                pending[1] = after;
+            }
+            if (this.deliveryScheduled) {
+                return;
+            }
+            this.deliveryScheduled = true;
+        }
+
+        try {
+            this.listenerExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    deliverChanges();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            synchronized (this.pendingChanges) {
+                this.deliveryScheduled = false;
+            }
+            System.err.println("[WARNING] change events kept until the next change, listener executor rejected : "
+                    + fileName);
+        }
+    }
+
+    private boolean hasChangeListener(String fileName) {
+        for (ListenerEntry entry : this.listeners) {
+            if (entry.propName == null || entry.propName.equals(fileName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Deliver the pending changes, in the order they were fired, until there are none left
+     */
+    private void deliverChanges() {
+        boolean drained = false;
+        try {
+            while (true) {
+                String fileName;
+                PropertySet[] change;
+                synchronized (this.pendingChanges) {
+                    Iterator<Map.Entry<String, PropertySet[]>> it = this.pendingChanges.entrySet().iterator();
+                    if (!it.hasNext()) {
+                        this.deliveryScheduled = false;
+                        drained = true;
+                        return;
+                    }
+                    Map.Entry<String, PropertySet[]> next = it.next();
+                    it.remove();
+                    fileName = next.getKey();
+                    change = next.getValue();
+                }
+
+                ConfigChangeEvent event = ConfigChangeEvent.diff(fileName, change[0], change[1]);
+                if (event.isEmpty()) {
+                    continue;
+                }
+                for (ListenerEntry entry : this.listeners) {
+                    if (entry.propName != null && !entry.propName.equals(fileName)) {
+                        continue;
+                    }
+                    try {
+                        entry.listener.onChange(event);
+                    } catch (RuntimeException e) {
+                        System.err.println("[WARNING] change listener failed for : " + fileName);
+                        e.printStackTrace();
+                    }
+                }
+            }
+        } finally {
+            if (!drained) {
+                // the next change submits a new delivery
+                synchronized (this.pendingChanges) {
+                    this.deliveryScheduled = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Add a listener notified whenever the given properties file is reloaded with different contents
+     * @param propName property file name
+     * @param listener listener
+     */
+    public void addChangeListener(String propName, ConfigChangeListener listener) {
+        this.listeners.add(new ListenerEntry(propName, listener));
+    }
+
+    /**
+     * Add a listener notified whenever any properties file is (re)loaded with different contents
+     * @param listener listener
+     */
+    public void addChangeListener(ConfigChangeListener listener) {
+        this.listeners.add(new ListenerEntry(null, listener));
+    }
+
+    /**
+     * Remove the listener from all the properties files it was added for
+     * @param listener listener
+     */
+    public void removeChangeListener(ConfigChangeListener listener) {
+        for (ListenerEntry entry : this.listeners) {
+            if (entry.listener == listener) {
+                this.listeners.remove(entry);
+            }
+        }
+    }
+
+    /**
+     * Replace the executor change listeners are called on
+     * @param executor executor, should be bounded and must not run tasks on the calling thread
+     */
+    public void setListenerExecutor(Executor executor) {
+        this.listenerExecutor = executor;
+    }
+
+    /**
+     * Resolve the changed fields again in every layer stack containing the given file
+     * @param fileName properties file name
+     * @param before previous properties, null if the file was not loaded
+     * @param after new properties
+     */
+    private void updateLayers(String fileName, PropertySet before, PropertySet after) {
+        if (this.layerStacks.isEmpty()) {
+            return;
+        }
+        Set<String> fields = null;
+        for (LayerStack stack : this.layerStacks.values()) {
+            if (stack.contains(fileName)) {
+                if (fields == null) {
+                    fields = PropertySet.changedFields(before, after);
+                }
+                stack.update(fields, this.properties);
+            }
+        }
+    }
+
+    /**
+     * Define a named stack of properties files, e.g. base, environment, datacenter and host.<br>
+     * higher layers override lower ones. the merged view is precomputed,
+     * so {@link #readLayered(String, String)} is a single lookup, and kept up to date on every (re)load of a layer.
+     * layers may be loaded before or after the stack is defined.
+     * @param name name of the stack
+     * @param propNames properties file names, lowest layer first
+     */
+    public void defineLayers(String name, String... propNames) {
+        // registered first, so loads from now on update it, then filled from the latest snapshot
+        LayerStack stack = new LayerStack(name, propNames);
+        this.layerStacks.put(name, stack);
+
+        Map<String, PropertySet> latest = this.properties.get();
+        HashSet<String> fields = new HashSet<String>();
+        for (String propName : propNames) {
+            PropertySet set = latest.get(propName);
+            if (set != null) {
+                fields.addAll(Arrays.asList(set.names()));
+            }
+        }
+        stack.update(fields, this.properties);
+    }
+
+    /**
+     * Remove a layer stack, the layers themselves stay loaded
+     * @param name name of the stack
+     */
+    public void removeLayers(String name) {
+        this.layerStacks.remove(name);
+    }
+
+    /**
+     * Get the value of the highest layer defining the given field
+     * @param name name of the layer stack
+     * @param field field name
+     * @return value for the given field, see {@link #setMissPolicy(MissPolicy)} if no layer defines it
+     */
+    public String readLayered(String name, String field) {
+        LayerStack stack = this.layerStacks.get(name);
+        String value = stack == null || field == null ? null : stack.get(field);
+        ConfigMetrics m = this.metrics;
+        if (m != null) {
+            m.recordRead(name, field, value == null);
+        }
+        if (value == null) {
+            return miss(name, field, stack == null);
+        }
+        return value;
+    }
+
+    /**
+     * Get all the field names of the merged view of a layer stack
+     * @param name name of the layer stack
+     * @return field names, or null if there is no such stack
+     */
+    public List<String> layeredNames(String name) {
+        LayerStack stack = this.layerStacks.get(name);
+        if (stack == null) {
+            miss(name, null, true);
+            return null;
+        }
+        return new ArrayList<String>(stack.names());
+    }
+
+    /**
+     * Refresh the {@link ConfigKey} handles bound to the given file from the latest snapshot
+     * @param fileName properties file name
+     */
+    private void refreshKeys(String fileName) {
+        purgeClearedKeys();
+        List<WeakReference<ConfigKey<?>>> bound = this.keys.get(fileName);
+        if (bound == null) {
+            return;
+        }
+        for (WeakReference<ConfigKey<?>> ref : bound) {
+            ConfigKey<?> key = ref.get();
+            if (key != null) {
+                key.refresh(this.properties);
+            }
+        }
+    }
+
+    /**
+     * Remove the handles that were garbage collected since the last call, if any
+     */
+    private void purgeClearedKeys() {
+        if (this.clearedKeys.poll() == null) {
+            return;
+        }
+        while (this.clearedKeys.poll() != null) {
+            // drained, every list is purged below
+        }
+        for (CopyOnWriteArrayList<WeakReference<ConfigKey<?>>> bound : this.keys.values()) {
+            removeKeys(bound, null);
+        }
+    }
+
+    /**
+     * Remove the handles that were garbage collected, and the given one
+     * @param bound handles of one file
+     * @param removed handle to remove, null for none
+     */
+    private static void removeKeys(List<WeakReference<ConfigKey<?>>> bound, final ConfigKey<?> removed) {
+        bound.removeIf(new Predicate<WeakReference<ConfigKey<?>>>() {
+            @Override
+            public boolean test(WeakReference<ConfigKey<?>> ref) {
+                ConfigKey<?> key = ref.get();
+                return key == null || key == removed;
+            }
+        });
+    }
+
+    /**
+     * Register a new {@link ConfigKey} handle and fill it from the latest snapshot
+     * @param key handle
+     * @return the handle
+     */
+    private <T> ConfigKey<T> register(ConfigKey<T> key) {
+        CopyOnWriteArrayList<WeakReference<ConfigKey<?>>> bound = this.keys.get(key.getPropName());
+        if (bound == null) {
+            CopyOnWriteArrayList<WeakReference<ConfigKey<?>>> created =
+                    new CopyOnWriteArrayList<WeakReference<ConfigKey<?>>>();
+            bound = this.keys.putIfAbsent(key.getPropName(), created);
+            if (bound == null) {
+                bound = created;
+            }
+        }
+        purgeClearedKeys();
+        bound.add(new WeakReference<ConfigKey<?>>(key, this.clearedKeys));
+        key.refresh(this.properties);
+        return key;
+    }
+
+    /**
+     * Stop refreshing the given handle, it keeps its current value.<br>
+     * handles that are no longer referenced are dropped anyway, this only drops one earlier.
+     * @param key handle returned by {@link #key(String, String)} or one of its typed variants
+     */
+    public void removeKey(ConfigKey<?> key) {
+        List<WeakReference<ConfigKey<?>>> bound = this.keys.get(key.getPropName());
+        if (bound != null) {
+            removeKeys(bound, key);
+        }
+    }
+
+    /**
+     * Get a pre-resolved handle for the given field.<br>
+     * the handle stays current across reloads of {@code propName}, and may be created before the file is loaded.
+     * @param propName property file name
+     * @param field field name
+     * @return handle, its value is null if the field doesn't exist
+     */
+    public ConfigKey<String> key(String propName, String field) {
+        return key(propName, field, null);
+    }
+
+    /**
+     * Get a pre-resolved handle for the given field
+     * @param propName property file name
+     * @param field field name
+     * @param defaultValue value used when the field doesn't exist
+     * @return handle
+     */
+    public ConfigKey<String> key(String propName, String field, String defaultValue) {
+        return register(new ConfigKey<String>(propName, field, null, null, null, defaultValue));
+    }
+
+    /**
+     * Get a pre-resolved handle for an int field, see {@link #getInt(String, String, int)}
+     */
+    public ConfigKey<Integer> intKey(String propName, String field, int defaultValue) {
+        return register(new ConfigKey<Integer>(propName, field, ValueType.INT, null, null, defaultValue));
+    }
+
+    /**
+     * Get a pre-resolved handle for a long field, see {@link #getLong(String, String, long)}
+     */
+    public ConfigKey<Long> longKey(String propName, String field, long defaultValue) {
+        return register(new ConfigKey<Long>(propName, field, ValueType.LONG, null, null, defaultValue));
+    }
+
+    /**
+     * Get a pre-resolved handle for a double field, see {@link #getDouble(String, String, double)}
+     */
+    public ConfigKey<Double> doubleKey(String propName, String field, double defaultValue) {
+        return register(new ConfigKey<Double>(propName, field, ValueType.DOUBLE, null, null, defaultValue));
+    }
+
+    /**
+     * Get a pre-resolved handle for a boolean field, see {@link #getBoolean(String, String, boolean)}
+     */
+    public ConfigKey<Boolean> booleanKey(String propName, String field, boolean defaultValue) {
+        return register(new ConfigKey<Boolean>(propName, field, ValueType.BOOLEAN, null, null, defaultValue));
+    }
+
+    /**
+     * Get a pre-resolved handle for a duration field, see {@link #getDuration(String, String, TimeUnit, long)}
+     */
+    public ConfigKey<Long> durationKey(String propName, String field, TimeUnit unit, long defaultValue) {
+        return register(new ConfigKey<Long>(propName, field, ValueType.DURATION, unit, null, defaultValue));
+    }
+
+    /**
+     * Get a pre-resolved handle for a byte size field, see {@link #getBytes(String, String, long)}
+     */
+    public ConfigKey<Long> bytesKey(String propName, String field, long defaultValue) {
+        return register(new ConfigKey<Long>(propName, field, ValueType.BYTES, null, null, defaultValue));
+    }
+
+    /**
+     * Get a pre-resolved handle for an enum field, see {@link #getEnum(String, String, Class, Enum)}
+     */
+    public <E extends Enum<E>> ConfigKey<E> enumKey(String propName, String field, Class<E> type, E defaultValue) {
+        return register(new ConfigKey<E>(propName, field, null, null, type, defaultValue));
+    }
+
+    /**
+     * Get a pre-resolved handle for a comma separated list field, see {@link #getList(String, String)}
+     */
+    public ConfigKey<List<String>> listKey(String propName, String field) {
+        return register(new ConfigKey<List<String>>(propName, field, ValueType.LIST, null, null,
+                Collections.<String>emptyList()));
+    }
+
+    /**
+     * Get the property value for the given field
+     * @param propName property file name
+     * @param field field name
+     * @return value for a given property field
+     */
+    @Override
+    public String readProperty(String propName, String field) {
+        PropertySet set = this.properties.get().get(propName);
+        ConfigMetrics m = this.metrics;
+        String value = set == null || field == null ? null : set.get(field);
+        if (m != null) {
+            m.recordRead(propName, field, value == null);
+        }
+        if (value == null) {
+            return miss(propName, field, set == null);
+        }
+        return value;
+    }
+
+    /**
+     * Get the property value for the given field as a {@link CharSequence}.<br>
+     * ASCII values of files stored outside the heap are read in place, without copying.
+     * the sequence stays valid after a reload.
+     * @param propName property file name
+     * @param field field name
+     * @return value for a given property field
+     */
+    @Override
+    public CharSequence readPropertyChars(String propName, String field) {
+        PropertySet set = this.properties.get().get(propName);
+        ConfigMetrics m = this.metrics;
+        CharSequence value = set == null || field == null ? null : set.getChars(field);
+        if (m != null) {
+            m.recordRead(propName, field, value == null);
+        }
+        if (value == null) {
+            return miss(propName, field, set == null);
+        }
+        return value;
+    }
+
+    /**
+     * Get the UTF-8 encoded property value for the given field.<br>
+     * values of files stored outside the heap are read in place, without copying.
+     * the buffer stays valid after a reload.
+     * @param propName property file name
+     * @param field field name
+     * @return read-only buffer of the value
+     */
+    @Override
+    public ByteBuffer readPropertyBytes(String propName, String field) {
+        PropertySet set = this.properties.get().get(propName);
+        ConfigMetrics m = this.metrics;
+        ByteBuffer value = set == null || field == null ? null : set.getBytes(field);
+        if (m != null) {
+            m.recordRead(propName, field, value == null);
+        }
+        if (value == null) {
+            String fallback = miss(propName, field, set == null);
+            return fallback == null ? null : ByteBuffer.wrap(fallback.getBytes(UTF_8)).asReadOnlyBuffer();
+        }
+        return value;
+    }
+
+    /**
+     * Handle a miss according to the {@link MissPolicy}
+     * @param propName property file name
+     * @param field field name
+     * @param fileMissing true if the file isn't loaded, false if the field doesn't exist
+     * @return value to return for the miss
+     * @throws NoSuchPropertyException with {@link MissPolicy#THROW}
+     */
+    private String miss(String propName, String field, boolean fileMissing) {
+        this.missCount.increment();
+        MissPolicy policy = this.missPolicy;
+        if (policy == MissPolicy.COUNT) {
+            return null;
+        }
+        if (policy == MissPolicy.THROW) {
+            throw new NoSuchPropertyException(propName, fileMissing ? null : String.valueOf(field));
+        }
+
+        MissReporter reporter = this.missReporter;
+        if (reporter != null) {
+            if (fileMissing) {
+                reporter.missingFile(propName);
+            } else {
+                reporter.missingField(propName, field);
+            }
+        }
+        return policy == MissPolicy.RETURN_DEFAULT ? this.missDefault : null;
+    }
+
+    /**
+     * Set what reads do when the file isn't loaded or the field doesn't exist.<br>
+     * typed getters fall back to their own default value for a missing field instead of
+     * {@link #setMissDefault(String)}, the miss is still counted, reported or thrown.
+     * @param policy miss policy, {@link MissPolicy#RETURN_NULL} by default
+     */
+    public void setMissPolicy(MissPolicy policy) {
+        this.missPolicy = policy;
+    }
+
+    /**
+     * Set the value {@link #readProperty(String, String)} returns on a miss with {@link MissPolicy#RETURN_DEFAULT}
+     * @param value default value
+     */
+    public void setMissDefault(String value) {
+        this.missDefault = value;
+    }
+
+    /**
+     * Set where misses are reported, by default at most one warning every 10 seconds to stderr
+     * @param reporter miss reporter, null to report nothing
+     */
+    public void setMissReporter(MissReporter reporter) {
+        this.missReporter = reporter;
+    }
+
+    /**
+     * Get the number of misses since this {@link Configuration} was created
+     * @return number of misses
+     */
+    public long getMissCount() {
+        return this.missCount.sum();
+    }
+
+    /**
+     * Get the parsed value for the given field, cached until the file is reloaded.<br>
+     * a missing field is a miss, but the caller falls back to its own default rather than the miss default.
+     * @param propName property file name
+     * @param field field name
+     * @param type value type
+     * @return parsed value, or null if the field doesn't exist
+     */
+    private Object readParsed(String propName, String field, ValueType type) {
+        PropertySet set = this.properties.get().get(propName);
+        ConfigMetrics m = this.metrics;
+        if (set == null) {
+            if (m != null) {
+                m.recordRead(propName, field, true);
+            }
+            miss(propName, field, true);
+            return null;
+        }
+        Object value = set.parsed(field, type);
+        if (m != null) {
+            m.recordRead(propName, field, value == null);
+        }
+        if (value == null) {
+            miss(propName, field, false);
+        }
+        return value;
+    }
+
+    @Override
+    public int getInt(String propName, String field, int defaultValue) {
+        Object value = readParsed(propName, field, ValueType.INT);
+        return value == null ? defaultValue : (Integer) value;
+    }
+
+    @Override
+    public long getLong(String propName, String field, long defaultValue) {
+        Object value = readParsed(propName, field, ValueType.LONG);
+        return value == null ? defaultValue : (Long) value;
+    }
+
+    @Override
+    public double getDouble(String propName, String field, double defaultValue) {
+        Object value = readParsed(propName, field, ValueType.DOUBLE);
+        return value == null ? defaultValue : (Double) value;
+    }
+
+    @Override
+    public boolean getBoolean(String propName, String field, boolean defaultValue) {
+        Object value = readParsed(propName, field, ValueType.BOOLEAN);
+        return value == null ? defaultValue : (Boolean) value;
+    }
+
+    @Override
+    public long getDuration(String propName, String field, TimeUnit unit, long defaultValue) {
+        Object value = readParsed(propName, field, ValueType.DURATION);
+        return value == null ? defaultValue : unit.convert((Long) value, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public long getBytes(String propName, String field, long defaultValue) {
+        Object value = readParsed(propName, field, ValueType.BYTES);
+        return value == null ? defaultValue : (Long) value;
+    }
+
+    @Override
+    public <E extends Enum<E>> E getEnum(String propName, String field, Class<E> type, E defaultValue) {
+        PropertySet set = this.properties.get().get(propName);
+        ConfigMetrics m = this.metrics;
+        if (set == null) {
+            if (m != null) {
+                m.recordRead(propName, field, true);
+            }
+            miss(propName, field, true);
+            return defaultValue;
+        }
+        E value = set.parsedEnum(field, type);
+        if (m != null) {
+            m.recordRead(propName, field, value == null);
+        }
+        if (value == null) {
+            miss(propName, field, false);
+            return defaultValue;
+        }
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<String> getList(String propName, String field) {
+        Object value = readParsed(propName, field, ValueType.LIST);
+        return value == null ? Collections.<String>emptyList() : (List<String>) value;
+    }
+
+    /**
+     * Get the fields list for a given {@link Properties} file
+     * @param propName name of the properties file
+     * @return array of the fields contained in the properties file.
+     */
+    @Override
+    public String[] propertyNames(String propName) {
+        PropertySet set = this.properties.get().get(propName);
+        if (set == null) {
+            miss(propName, null, true);
+            return null;
+        }
+        return set.names();
+    }
+
+    /**
+     * Get the fields list for a given {@link Properties} file
+     * @param propName name of the properties file
+     * @return list of the fields contained in the properties file.
+     */
+    public List<String> propertyNamesList(String propName) {
+        PropertySet set = this.properties.get().get(propName);
+        if (set == null) {
+            miss(propName, null, true);
+            return null;
         }
+        return set.namesList();
     }
 
     /*
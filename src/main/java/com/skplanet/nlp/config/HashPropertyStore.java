@@ -0,0 +1,73 @@
+package com.skplanet.nlp.config;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * {@link PropertyStore} backed by a {@link HashMap}, the default for parsed files<br>
+ */
+final class HashPropertyStore implements PropertyStore {
+
+    /**
+     * field and value pair, never modified after construction
+     */
+    private final HashMap<String, String> values;
+
+    /**
+     * field names, in the order {@link Properties#stringPropertyNames()} returned them
+     */
+    private final String[] names;
+
+    /**
+     * Constructor
+     * @param prop loaded properties
+     */
+    HashPropertyStore(Properties prop) {
+        Set<String> keys = prop.stringPropertyNames();
+        this.values = new HashMap<String, String>(keys.size() * 4 / 3 + 1);
+        this.names = new String[keys.size()];
+
+        int i = 0;
+        for (String key : keys) {
+            this.values.put(key, prop.getProperty(key));
+            this.names[i++] = key;
+        }
+    }
+
+    /**
+     * Constructor
+     * @param values field and value pairs, owned by this store from now on
+     * @param names field names
+     */
+    HashPropertyStore(HashMap<String, String> values, String[] names) {
+        this.values = values;
+        this.names = names;
+    }
+
+    @Override
+    public String get(String field) {
+        return this.values.get(field);
+    }
+
+    @Override
+    public Object typed(String field, ValueType type) {
+        return null;
+    }
+
+    @Override
+    public String[] names() {
+        return this.names.clone();
+    }
+
+    @Override
+    public int size() {
+        return this.names.length;
+    }
+
+    @Override
+    public Map<String, String> toMap() {
+        return this.values;
+    }
+}
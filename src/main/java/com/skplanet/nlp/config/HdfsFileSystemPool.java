@@ -0,0 +1,132 @@
+package com.skplanet.nlp.config;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FsUrlStreamHandlerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pool of Hadoop {@link FileSystem} per namenode URI, sharing one Hadoop configuration<br>
+ * <br>
+ * the Hadoop configuration parses its XML defaults once, and each namenode is connected once,
+ * instead of on every load.
+ * {@link #close()} closes every pooled {@link FileSystem}.<br>
+ */
+public class HdfsFileSystemPool implements Closeable {
+
+    /**
+     * {@link URL#setURLStreamHandlerFactory} may be called only once per JVM
+     */
+    private static volatile boolean urlHandlerInstalled = false;
+
+    private final org.apache.hadoop.conf.Configuration conf;
+
+    // file systems by scheme and authority, e.g. "hdfs://namenode:8020"
+    private final ConcurrentHashMap<String, FileSystem> pool;
+
+    private volatile boolean closed = false;
+
+    /**
+     * Constructor, with a default Hadoop configuration
+     */
+    public HdfsFileSystemPool() {
+        this(defaultConf());
+    }
+
+    /**
+     * Constructor
+     * @param conf shared Hadoop configuration
+     */
+    public HdfsFileSystemPool(org.apache.hadoop.conf.Configuration conf) {
+        this.conf = conf;
+        this.pool = new ConcurrentHashMap<String, FileSystem>();
+    }
+
+    /**
+     * Create the default Hadoop configuration
+     * @return Hadoop configuration
+     */
+    public static org.apache.hadoop.conf.Configuration defaultConf() {
+        org.apache.hadoop.conf.Configuration conf = new org.apache.hadoop.conf.Configuration();
+        conf.set("fs.hdfs.impl", org.apache.hadoop.hdfs.DistributedFileSystem.class.getName());
+        conf.set("fs.file.impl", org.apache.hadoop.fs.LocalFileSystem.class.getName());
+        return conf;
+    }
+
+    /**
+     * Get the shared Hadoop configuration
+     * @return Hadoop configuration
+     */
+    public org.apache.hadoop.conf.Configuration getConf() {
+        return this.conf;
+    }
+
+    /**
+     * Get the pooled {@link FileSystem} for the given URI, connecting on first use
+     * @param uri file or namenode URI
+     * @return file system, owned by this pool : don't close it
+     */
+    public FileSystem get(URI uri) throws IOException {
+        if (this.closed) {
+            throw new IOException("file system pool is closed");
+        }
+
+        String key = uri.getScheme() + "://" + (uri.getAuthority() == null ? "" : uri.getAuthority());
+        FileSystem fs = this.pool.get(key);
+        if (fs != null) {
+            return fs;
+        }
+
+        FileSystem created = FileSystem.newInstance(uri, this.conf);
+        fs = this.pool.putIfAbsent(key, created);
+        if (fs != null) {
+            // lost the race, keep the other one
+            created.close();
+            return fs;
+        }
+        return created;
+    }
+
+    /**
+     * Install Hadoop's {@link URL} stream handler, so that "hdfs://" URLs can be opened.<br>
+     * done once per JVM, later calls do nothing.
+     */
+    public void installUrlStreamHandler() {
+        if (urlHandlerInstalled) {
+            return;
+        }
+        synchronized (HdfsFileSystemPool.class) {
+            if (urlHandlerInstalled) {
+                return;
+            }
+            try {
+                URL.setURLStreamHandlerFactory(new FsUrlStreamHandlerFactory(this.conf));
+            } catch (Error e) {
+                // another factory is already set for this JVM
+            }
+            urlHandlerInstalled = true;
+        }
+    }
+
+    /**
+     * Close all the pooled file systems
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        for (Map.Entry<String, FileSystem> entry : this.pool.entrySet()) {
+            try {
+                entry.getValue().close();
+            } catch (IOException e) {
+                System.err.println("[WARNING] failure to close file system : " + entry.getKey());
+                e.printStackTrace();
+            }
+        }
+        this.pool.clear();
+    }
+}
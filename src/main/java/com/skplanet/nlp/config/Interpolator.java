@@ -0,0 +1,223 @@
+package com.skplanet.nlp.config;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves variable references in property values<br>
+ * <br>
+ * supported references.<br>
+ *
+ * ${other.key} : value of another field of the same file <br>
+ * ${env:VAR} : environment variable <br>
+ * ${sys:prop} : system property <br>
+ * $${ : literal "${" <br>
+ * <br>
+ * references that can't be resolved are left as they are. cyclic references fail the load.
+ * on reload, only the fields whose raw value changed, the fields referring to system properties,
+ * and the fields depending on any of those are resolved again.<br>
+ */
+final class Interpolator {
+
+    private static final String ENV_PREFIX = "env:";
+    private static final String SYS_PREFIX = "sys:";
+
+    // raw values of the new load
+    private final Map<String, String> raw;
+
+    // raw and resolved values of the previous load, null if none
+    private final Map<String, String> previousRaw;
+    private final Map<String, String> previousResolved;
+
+    private final HashMap<String, String> resolved;
+
+    // fields to resolve, all the others keep their previous resolved value
+    private Set<String> dirty;
+
+    // fields being resolved, in order, for cycle detection
+    private final LinkedHashSet<String> path;
+
+    private Interpolator(Map<String, String> raw, Map<String, String> previousRaw,
+                         Map<String, String> previousResolved) {
+        this.raw = raw;
+        this.previousRaw = previousRaw;
+        this.previousResolved = previousResolved;
+        this.resolved = new HashMap<String, String>(raw.size() * 4 / 3 + 1);
+        this.path = new LinkedHashSet<String>();
+    }
+
+    /**
+     * Resolve all the references
+     * @param raw raw values
+     * @param previousRaw raw values of the previous load, null if none
+     * @param previousResolved resolved values of the previous load, null if none
+     * @return resolved values
+     * @throws IOException on cyclic references
+     */
+    static HashMap<String, String> resolve(Map<String, String> raw, Map<String, String> previousRaw,
+                                           Map<String, String> previousResolved) throws IOException {
+        Interpolator in = new Interpolator(raw, previousRaw, previousResolved);
+        in.dirty = in.dirtyFields();
+        for (String field : raw.keySet()) {
+            in.resolveField(field);
+        }
+        return in.resolved;
+    }
+
+    /**
+     * Find the fields that must be resolved again
+     */
+    private Set<String> dirtyFields() {
+        if (this.previousRaw == null) {
+            return this.raw.keySet();
+        }
+
+        // reverse dependencies : field -> fields referring to it
+        HashMap<String, List<String>> dependents = new HashMap<String, List<String>>();
+        Deque<String> queue = new ArrayDeque<String>();
+        for (Map.Entry<String, String> entry : this.raw.entrySet()) {
+            String field = entry.getKey();
+            String value = entry.getValue();
+            if (value.indexOf("${") < 0) {
+                if (!value.equals(this.previousRaw.get(field))) {
+                    queue.add(field);
+                }
+                continue;
+            }
+
+            boolean system = false;
+            for (String ref : references(value)) {
+                if (ref.startsWith(SYS_PREFIX)) {
+                    system = true;
+                } else if (!ref.startsWith(ENV_PREFIX)) {
+                    List<String> list = dependents.get(ref);
+                    if (list == null) {
+                        list = new ArrayList<String>(2);
+                        dependents.put(ref, list);
+                    }
+                    list.add(field);
+                }
+            }
+            if (system || !value.equals(this.previousRaw.get(field))) {
+                queue.add(field);
+            }
+        }
+        for (String field : this.previousRaw.keySet()) {
+            if (!this.raw.containsKey(field)) {
+                queue.add(field);
+            }
+        }
+
+        HashSet<String> dirty = new HashSet<String>();
+        while (!queue.isEmpty()) {
+            String field = queue.poll();
+            if (!dirty.add(field)) {
+                continue;
+            }
+            List<String> list = dependents.get(field);
+            if (list != null) {
+                queue.addAll(list);
+            }
+        }
+        return dirty;
+    }
+
+    private String resolveField(String field) throws IOException {
+        String value = this.resolved.get(field);
+        if (value != null) {
+            return value;
+        }
+
+        if (!this.dirty.contains(field)) {
+            value = this.previousResolved.get(field);
+        } else {
+            if (!this.path.add(field)) {
+                StringBuilder cycle = new StringBuilder();
+                for (String f : this.path) {
+                    cycle.append(f).append(" -> ");
+                }
+                throw new IOException("cyclic reference : " + cycle.append(field));
+            }
+            value = substitute(this.raw.get(field));
+            this.path.remove(field);
+        }
+        this.resolved.put(field, value);
+        return value;
+    }
+
+    private String substitute(String value) throws IOException {
+        if (value.indexOf("${") < 0) {
+            return value;
+        }
+
+        StringBuilder out = new StringBuilder(value.length() + 32);
+        int i = 0;
+        while (i < value.length()) {
+            int start = value.indexOf("${", i);
+            if (start < 0) {
+                out.append(value, i, value.length());
+                break;
+            }
+            if (start > 0 && value.charAt(start - 1) == '$') {
+                // "$${" : literal "${"
+                out.append(value, i, start - 1).append("${");
+                i = start + 2;
+                continue;
+            }
+            int end = value.indexOf('}', start + 2);
+            if (end < 0) {
+                out.append(value, i, value.length());
+                break;
+            }
+
+            out.append(value, i, start);
+            String ref = value.substring(start + 2, end);
+            String replacement;
+            if (ref.startsWith(ENV_PREFIX)) {
+                replacement = System.getenv(ref.substring(ENV_PREFIX.length()));
+            } else if (ref.startsWith(SYS_PREFIX)) {
+                replacement = System.getProperty(ref.substring(SYS_PREFIX.length()));
+            } else if (this.raw.containsKey(ref)) {
+                replacement = resolveField(ref);
+            } else {
+                replacement = null;
+            }
+            out.append(replacement != null ? replacement : value.substring(start, end + 1));
+            i = end + 1;
+        }
+        return out.toString();
+    }
+
+    /**
+     * Get the references in a raw value
+     * @param value raw value
+     * @return references, e.g. "other.key", "env:HOME"
+     */
+    private static List<String> references(String value) {
+        List<String> refs = new ArrayList<String>(2);
+        int i = 0;
+        while (true) {
+            int start = value.indexOf("${", i);
+            if (start < 0) {
+                break;
+            }
+            int end = value.indexOf('}', start + 2);
+            if (end < 0) {
+                break;
+            }
+            if (start == 0 || value.charAt(start - 1) != '$') {
+                refs.add(value.substring(start + 2, end));
+            }
+            i = end + 1;
+        }
+        return refs;
+    }
+}
@@ -0,0 +1,109 @@
+package com.skplanet.nlp.config;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Named stack of properties files, where higher layers override lower ones<br>
+ * <br>
+ * keeps the merged view precomputed, so a lookup is a single hash probe.
+ * when one layer is reloaded, only the fields that changed in it are resolved again, into a copy of the view
+ * that replaces it at once : readers see every change of a reload or none, like {@link Configuration} snapshots.<br>
+ */
+final class LayerStack {
+
+    private final String name;
+
+    // properties file names, lowest layer first
+    private final String[] layers;
+
+    // merged view, never modified once published
+    private volatile Map<String, String> merged;
+
+    /**
+     * Constructor, the merged view starts empty until {@link #update(Set, AtomicReference)}
+     * @param name name of the stack
+     * @param layers properties file names, lowest layer first
+     */
+    LayerStack(String name, String[] layers) {
+        this.name = name;
+        this.layers = layers.clone();
+        this.merged = Collections.emptyMap();
+    }
+
+    String getName() {
+        return this.name;
+    }
+
+    /**
+     * Check whether the given properties file is one of the layers
+     * @param fileName properties file name
+     * @return true if it is a layer
+     */
+    boolean contains(String fileName) {
+        for (String layer : this.layers) {
+            if (layer.equals(fileName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the value of the highest layer defining the field
+     * @param field field name
+     * @return value, or null if no layer defines it
+     */
+    String get(String field) {
+        return this.merged.get(field);
+    }
+
+    /**
+     * Get all the field names of the merged view
+     * @return field names
+     */
+    Set<String> names() {
+        return this.merged.keySet();
+    }
+
+    /**
+     * Resolve the given fields again after a layer was reloaded.<br>
+     * the snapshot is read under the lock, so the last update to run resolves against the latest version
+     * and concurrent updates can't leave an older value behind.
+     * @param fields fields added, removed or changed in the reloaded layer
+     * @param snapshot published properties of the {@link Configuration}
+     */
+    synchronized void update(Set<String> fields, AtomicReference<Map<String, PropertySet>> snapshot) {
+        if (fields.isEmpty()) {
+            return;
+        }
+
+        Map<String, PropertySet> latest = snapshot.get();
+        HashMap<String, String> next = new HashMap<String, String>(this.merged);
+        for (String field : fields) {
+            String value = resolve(field, latest);
+            if (value == null) {
+                next.remove(field);
+            } else {
+                next.put(field, value);
+            }
+        }
+        this.merged = Collections.unmodifiableMap(next);
+    }
+
+    private String resolve(String field, Map<String, PropertySet> snapshot) {
+        for (int i = this.layers.length - 1; i >= 0; i--) {
+            PropertySet set = snapshot.get(this.layers[i]);
+            if (set != null) {
+                String value = set.get(field);
+                if (value != null) {
+                    return value;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,43 @@
+package com.skplanet.nlp.config;
+
+/**
+ * Properties file and load mode, for {@link Configuration#loadAll(java.util.List)}<br>
+ */
+public class LoadRequest {
+
+    private final String fileName;
+    private final int mode;
+
+    /**
+     * Constructor
+     * @param fileName properties file name
+     * @param mode load mode, one of {@link Configuration#CLASSPATH_LOAD}, {@link Configuration#PHYSICALPATH_LOAD},
+     *             {@link Configuration#HDFSPATH_LOAD}, {@link Configuration#MAPPED_PHYSICALPATH_LOAD}
+     *             or {@link Configuration#ZOOKEEPER_LOAD}
+     */
+    public LoadRequest(String fileName, int mode) {
+        this.fileName = fileName;
+        this.mode = mode;
+    }
+
+    /**
+     * Get the properties file name
+     * @return properties file name
+     */
+    public String getFileName() {
+        return this.fileName;
+    }
+
+    /**
+     * Get the load mode
+     * @return load mode
+     */
+    public int getMode() {
+        return this.mode;
+    }
+
+    @Override
+    public String toString() {
+        return this.fileName + " (mode " + this.mode + ")";
+    }
+}
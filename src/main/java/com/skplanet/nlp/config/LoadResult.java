@@ -0,0 +1,46 @@
+package com.skplanet.nlp.config;
+
+/**
+ * Outcome of loading one properties file with {@link Configuration#loadAll(java.util.List)}<br>
+ */
+public class LoadResult {
+
+    private final LoadRequest request;
+
+    // null on success
+    private final Throwable error;
+
+    LoadResult(LoadRequest request, Throwable error) {
+        this.request = request;
+        this.error = error;
+    }
+
+    /**
+     * Get the request this result is for
+     * @return load request
+     */
+    public LoadRequest getRequest() {
+        return this.request;
+    }
+
+    /**
+     * Check whether the file was loaded
+     * @return true if the file was loaded and published
+     */
+    public boolean isSuccess() {
+        return this.error == null;
+    }
+
+    /**
+     * Get the failure cause
+     * @return failure cause, or null if the file was loaded
+     */
+    public Throwable getError() {
+        return this.error;
+    }
+
+    @Override
+    public String toString() {
+        return this.request + (this.error == null ? " : loaded" : " : failed, " + this.error);
+    }
+}
@@ -0,0 +1,141 @@
+package com.skplanet.nlp.config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Local on-disk copy of remote (HDFS, ZooKeeper) properties files<br>
+ * <br>
+ * each file is kept as "name.properties", the raw bytes as downloaded,
+ * and "name.meta" with modification time (modification zxid for a znode), length and checksum of the remote file.
+ * both are written to a temporary file first and renamed into place.<br>
+ */
+final class LocalConfigCache {
+
+    private static final String DATA_SUFFIX = ".properties";
+    private static final String META_SUFFIX = ".meta";
+
+    private final File dir;
+
+    LocalConfigCache(File dir) {
+        this.dir = dir;
+    }
+
+    File getDir() {
+        return this.dir;
+    }
+
+    /**
+     * Load the cached copy of the given remote file
+     * @param fileName remote file name, as given to {@link Configuration#loadProperties(String, int)}
+     * @return parsed properties with the remote stamp, or null if there is no usable copy
+     */
+    PropertySet load(String fileName) {
+        File data = file(fileName, DATA_SUFFIX);
+        File meta = file(fileName, META_SUFFIX);
+        if (!data.isFile() || !meta.isFile()) {
+            return null;
+        }
+
+        try {
+            Properties info = read(meta);
+            Properties prop = read(data);
+            SourceStamp stamp = new SourceStamp(Long.parseLong(info.getProperty("modified")),
+                    Long.parseLong(info.getProperty("length")), info.getProperty("checksum"));
+            return new PropertySet(prop, stamp, data.length());
+        } catch (Exception e) {
+            System.err.println("[WARNING] unusable local copy of : " + fileName);
+            return null;
+        }
+    }
+
+    /**
+     * Store a copy of the given remote file
+     * @param fileName remote file name
+     * @param bytes file contents
+     * @param stamp modification time, length and checksum of the remote file
+     */
+    void store(String fileName, byte[] bytes, SourceStamp stamp) {
+        if (!this.dir.isDirectory() && !this.dir.mkdirs()) {
+            System.err.println("[WARNING] can't create local cache directory : " + this.dir);
+            return;
+        }
+
+        Properties info = new Properties();
+        info.setProperty("uri", fileName);
+        info.setProperty("modified", String.valueOf(stamp.modified));
+        info.setProperty("length", String.valueOf(stamp.length));
+        if (stamp.checksum != null) {
+            info.setProperty("checksum", stamp.checksum);
+        }
+
+        try {
+            // data first : a meta file always describes the data next to it or an older one
+            replace(file(fileName, DATA_SUFFIX), bytes);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            info.store(out, null);
+            replace(file(fileName, META_SUFFIX), out.toByteArray());
+        } catch (IOException e) {
+            System.err.println("[WARNING] failure to write local copy of : " + fileName);
+            e.printStackTrace();
+        }
+    }
+
+    private File file(String fileName, String suffix) {
+        try {
+            return new File(this.dir, URLEncoder.encode(fileName, "UTF-8") + suffix);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Properties read(File file) throws IOException {
+        Properties prop = new Properties();
+        InputStream is = new FileInputStream(file);
+        try {
+            prop.load(is);
+        } finally {
+            is.close();
+        }
+        return prop;
+    }
+
+    private void replace(File target, byte[] bytes) throws IOException {
+        File tmp = File.createTempFile(".cache", ".tmp", this.dir);
+        try {
+            OutputStream os = new FileOutputStream(tmp);
+            try {
+                os.write(bytes);
+            } finally {
+                os.close();
+            }
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    /**
+     * Parse downloaded bytes the same way a remote stream is parsed
+     * @param bytes file contents
+     * @return properties
+     */
+    static Properties parse(byte[] bytes) throws IOException {
+        Properties prop = new Properties();
+        prop.load(new ByteArrayInputStream(bytes));
+        return prop;
+    }
+}
@@ -0,0 +1,465 @@
+package com.skplanet.nlp.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link PropertyStore} reading a memory-mapped properties file in place<br>
+ * <br>
+ * loading scans the mapped bytes once and builds an open-addressing index of key and value offsets,
+ * no {@link String} is created for a field until it is read.
+ * keys and values are decoded on first access and kept, so later reads of the same field allocate nothing.
+ * the syntax is the one of {@link java.util.Properties#load(java.io.Reader)}, the file is read as UTF-8.<br>
+ * <br>
+ * the file stays mapped as long as the store is reachable.
+ * replace the file by renaming a new one over it : truncating or rewriting a mapped file in place
+ * makes later reads fail.<br>
+ */
+final class MappedPropertyStore implements PropertyStore {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    /**
+     * mapped file, only read with absolute gets so that it can be shared by all readers
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * per entry : key start, key end, value start, value end.
+     * key start is -1 for entries overridden by a later entry with the same key
+     */
+    private final int[] offsets;
+
+    /**
+     * {@link String#hashCode()} of each key
+     */
+    private final int[] hashes;
+
+    /**
+     * keys made of ASCII characters without escapes, compared to the mapped bytes directly
+     */
+    private final boolean[] plain;
+
+    /**
+     * open-addressing table of entry index + 1, 0 for empty slots
+     */
+    private final int[] slots;
+
+    /**
+     * decoded keys and values, filled on first access.
+     * racy writes are harmless : every thread decodes the same immutable {@link String}
+     */
+    private final String[] keys;
+    private final String[] values;
+
+    /**
+     * number of live entries
+     */
+    private final int count;
+
+    /**
+     * Map the given file and index it
+     * @param file properties file
+     * @return store
+     * @throws IOException if the file can't be read or is larger than 2GB
+     * @throws IllegalArgumentException on a malformed \\uxxxx escape, as {@link java.util.Properties} does
+     */
+    static MappedPropertyStore open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("file is too large to map : " + file);
+            }
+            return new MappedPropertyStore(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        } finally {
+            // the mapping stays valid after the channel is closed
+            raf.close();
+        }
+    }
+
+    private MappedPropertyStore(ByteBuffer buffer) {
+        this.buffer = buffer;
+
+        int[] offsets = new int[64];
+        int[] hashes = new int[16];
+        boolean[] plain = new boolean[16];
+        int entries = 0;
+
+        int n = buffer.limit();
+        int p = 0;
+        while (p < n) {
+            byte c = buffer.get(p);
+            // white space and blank lines between logical lines
+            if (isWhiteSpace(c) || c == '\n' || c == '\r') {
+                p++;
+                continue;
+            }
+            if (c == '#' || c == '!') {
+                while (p < n && buffer.get(p) != '\n' && buffer.get(p) != '\r') {
+                    p++;
+                }
+                continue;
+            }
+
+            // key : up to the first unescaped separator or white space
+            int keyStart = p;
+            boolean ascii = true;
+            boolean backslash = false;
+            int hash = 0;
+            while (p < n) {
+                c = buffer.get(p);
+                if (c == '\n' || c == '\r') {
+                    if (!backslash) {
+                        break;
+                    }
+                    p = skipLineBreak(buffer, p);
+                    backslash = false;
+                    continue;
+                }
+                if (!backslash && (c == '=' || c == ':' || isWhiteSpace(c))) {
+                    break;
+                }
+                if (backslash && c == 'u') {
+                    checkUnicodeEscape(buffer, p + 1);
+                }
+                if (c == '\\') {
+                    backslash = !backslash;
+                    ascii = false;
+                } else {
+                    backslash = false;
+                    ascii &= c >= 0;
+                }
+                hash = 31 * hash + c;
+                p++;
+            }
+            int keyEnd = p;
+
+            // separator : white space, with at most one '=' or ':'
+            boolean separator = false;
+            while (p < n) {
+                c = buffer.get(p);
+                if (isWhiteSpace(c)) {
+                    p++;
+                } else if (!separator && (c == '=' || c == ':')) {
+                    separator = true;
+                    p++;
+                } else if (c == '\\' && p + 1 < n && (buffer.get(p + 1) == '\n' || buffer.get(p + 1) == '\r')) {
+                    p = skipLineBreak(buffer, p + 1);
+                } else {
+                    break;
+                }
+            }
+
+            // value : up to the end of the logical line
+            int valueStart = p;
+            backslash = false;
+            while (p < n) {
+                c = buffer.get(p);
+                if (c == '\n' || c == '\r') {
+                    if (!backslash) {
+                        break;
+                    }
+                    p = skipLineBreak(buffer, p);
+                    backslash = false;
+                    continue;
+                }
+                if (backslash && c == 'u') {
+                    checkUnicodeEscape(buffer, p + 1);
+                }
+                backslash = c == '\\' && !backslash;
+                p++;
+            }
+
+            if (entries == hashes.length) {
+                offsets = grow(offsets, offsets.length * 2);
+                hashes = grow(hashes, hashes.length * 2);
+                boolean[] larger = new boolean[plain.length * 2];
+                System.arraycopy(plain, 0, larger, 0, entries);
+                plain = larger;
+            }
+            offsets[entries * 4] = keyStart;
+            offsets[entries * 4 + 1] = keyEnd;
+            offsets[entries * 4 + 2] = valueStart;
+            offsets[entries * 4 + 3] = p;
+            hashes[entries] = ascii ? hash : decode(buffer, keyStart, keyEnd).hashCode();
+            plain[entries] = ascii;
+            entries++;
+        }
+
+        this.offsets = offsets;
+        this.hashes = hashes;
+        this.plain = plain;
+        this.keys = new String[entries];
+        this.values = new String[entries];
+
+        int capacity = 16;
+        while (capacity < entries * 2) {
+            capacity <<= 1;
+        }
+        this.slots = new int[capacity];
+
+        // later entries override earlier ones with the same key, as Properties does
+        int live = 0;
+        for (int e = 0; e < entries; e++) {
+            if (insert(e)) {
+                live++;
+            }
+        }
+        this.count = live;
+    }
+
+    /**
+     * Insert an entry into the table
+     * @return false if it replaced an entry with the same key
+     */
+    private boolean insert(int e) {
+        int mask = this.slots.length - 1;
+        int i = spread(this.hashes[e]) & mask;
+        int slot;
+        while ((slot = this.slots[i]) != 0) {
+            int o = slot - 1;
+            if (this.hashes[o] == this.hashes[e] && sameKey(o, e)) {
+                this.offsets[o * 4] = -1;
+                this.slots[i] = e + 1;
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        this.slots[i] = e + 1;
+        return true;
+    }
+
+    @Override
+    public String get(String field) {
+        int e = find(field);
+        if (e < 0) {
+            return null;
+        }
+        String value = this.values[e];
+        if (value == null) {
+            value = decode(this.buffer, this.offsets[e * 4 + 2], this.offsets[e * 4 + 3]);
+            this.values[e] = value;
+        }
+        return value;
+    }
+
+    private int find(String field) {
+        int hash = field.hashCode();
+        int mask = this.slots.length - 1;
+        int i = spread(hash) & mask;
+        int slot;
+        while ((slot = this.slots[i]) != 0) {
+            int e = slot - 1;
+            if (this.hashes[e] == hash && keyEquals(e, field)) {
+                return e;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private boolean keyEquals(int e, String field) {
+        if (!this.plain[e]) {
+            return key(e).equals(field);
+        }
+        int start = this.offsets[e * 4];
+        int length = this.offsets[e * 4 + 1] - start;
+        if (length != field.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (this.buffer.get(start + i) != field.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean sameKey(int a, int b) {
+        if (this.plain[a] && this.plain[b]) {
+            int start = this.offsets[a * 4];
+            int other = this.offsets[b * 4];
+            int length = this.offsets[a * 4 + 1] - start;
+            if (length != this.offsets[b * 4 + 1] - other) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (this.buffer.get(start + i) != this.buffer.get(other + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return key(a).equals(key(b));
+    }
+
+    private String key(int e) {
+        String key = this.keys[e];
+        if (key == null) {
+            key = decode(this.buffer, this.offsets[e * 4], this.offsets[e * 4 + 1]);
+            this.keys[e] = key;
+        }
+        return key;
+    }
+
+    @Override
+    public Object typed(String field, ValueType type) {
+        return null;
+    }
+
+    @Override
+    public String[] names() {
+        String[] names = new String[this.count];
+        int i = 0;
+        for (int e = 0; e < this.keys.length; e++) {
+            if (this.offsets[e * 4] >= 0) {
+                names[i++] = key(e);
+            }
+        }
+        return names;
+    }
+
+    @Override
+    public int size() {
+        return this.count;
+    }
+
+    /**
+     * Decode every field into a new map
+     * @return field and value pairs
+     */
+    @Override
+    public Map<String, String> toMap() {
+        HashMap<String, String> map = new HashMap<String, String>(this.count * 4 / 3 + 1);
+        for (int e = 0; e < this.keys.length; e++) {
+            if (this.offsets[e * 4] >= 0) {
+                map.put(key(e), get(key(e)));
+            }
+        }
+        return map;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean isWhiteSpace(byte c) {
+        return c == ' ' || c == '\t' || c == '\f';
+    }
+
+    /**
+     * Skip a line break and the leading white space of the continuation line
+     * @param p position of the line break
+     * @return position of the first character of the continuation line
+     */
+    private static int skipLineBreak(ByteBuffer buffer, int p) {
+        int n = buffer.limit();
+        if (buffer.get(p) == '\r' && p + 1 < n && buffer.get(p + 1) == '\n') {
+            p += 2;
+        } else {
+            p++;
+        }
+        while (p < n && isWhiteSpace(buffer.get(p))) {
+            p++;
+        }
+        return p;
+    }
+
+    private static void checkUnicodeEscape(ByteBuffer buffer, int p) {
+        if (p + 4 > buffer.limit()) {
+            throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+        }
+        for (int i = p; i < p + 4; i++) {
+            if (Character.digit((char) buffer.get(i), 16) < 0) {
+                throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+            }
+        }
+    }
+
+    /**
+     * Decode a key or a value : UTF-8, then escapes and line continuations
+     */
+    private static String decode(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        ByteBuffer view = buffer.duplicate();
+        view.position(start);
+        view.get(bytes);
+
+        boolean ascii = true;
+        for (byte b : bytes) {
+            if (b < 0 || b == '\\') {
+                ascii = false;
+                break;
+            }
+        }
+        if (ascii) {
+            return new String(bytes, ISO_8859_1);
+        }
+
+        String raw = new String(bytes, UTF_8);
+        if (raw.indexOf('\\') < 0) {
+            return raw;
+        }
+
+        StringBuilder out = new StringBuilder(raw.length());
+        int length = raw.length();
+        int i = 0;
+        while (i < length) {
+            char c = raw.charAt(i++);
+            if (c != '\\') {
+                out.append(c);
+                continue;
+            }
+            if (i >= length) {
+                // trailing backslash at the end of the file
+                break;
+            }
+            c = raw.charAt(i++);
+            switch (c) {
+                case '\r':
+                case '\n':
+                    if (c == '\r' && i < length && raw.charAt(i) == '\n') {
+                        i++;
+                    }
+                    while (i < length && (raw.charAt(i) == ' ' || raw.charAt(i) == '\t' || raw.charAt(i) == '\f')) {
+                        i++;
+                    }
+                    break;
+                case 'u':
+                    out.append((char) Integer.parseInt(raw.substring(i, i + 4), 16));
+                    i += 4;
+                    break;
+                case 't':
+                    out.append('\t');
+                    break;
+                case 'r':
+                    out.append('\r');
+                    break;
+                case 'n':
+                    out.append('\n');
+                    break;
+                case 'f':
+                    out.append('\f');
+                    break;
+                default:
+                    out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    private static int[] grow(int[] array, int size) {
+        int[] larger = new int[size];
+        System.arraycopy(array, 0, larger, 0, array.length);
+        return larger;
+    }
+}
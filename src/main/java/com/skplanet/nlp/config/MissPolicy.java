@@ -0,0 +1,27 @@
+package com.skplanet.nlp.config;
+
+/**
+ * What {@link Configuration} does when a properties file isn't loaded or a field doesn't exist<br>
+ */
+public enum MissPolicy {
+
+    /**
+     * return null, and report the miss to the {@link MissReporter}
+     */
+    RETURN_NULL,
+
+    /**
+     * return the value set by {@link Configuration#setMissDefault(String)}, and report the miss to the {@link MissReporter}
+     */
+    RETURN_DEFAULT,
+
+    /**
+     * throw {@link NoSuchPropertyException}
+     */
+    THROW,
+
+    /**
+     * return null and only count the miss, see {@link Configuration#getMissCount()}
+     */
+    COUNT
+}
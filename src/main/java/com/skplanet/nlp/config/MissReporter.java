@@ -0,0 +1,22 @@
+package com.skplanet.nlp.config;
+
+/**
+ * Receives the misses of {@link Configuration} reads, e.g. to log them<br>
+ * <br>
+ * called on the reading thread, so implementations must be cheap and must not block.<br>
+ */
+public interface MissReporter {
+
+    /**
+     * Called when a properties file that isn't loaded is read
+     * @param propName properties file name
+     */
+    public void missingFile(String propName);
+
+    /**
+     * Called when a field that doesn't exist is read
+     * @param propName properties file name
+     * @param field field name
+     */
+    public void missingField(String propName, String field);
+}
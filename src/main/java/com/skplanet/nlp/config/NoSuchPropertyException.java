@@ -0,0 +1,32 @@
+package com.skplanet.nlp.config;
+
+/**
+ * Thrown on a miss when {@link Configuration} uses {@link MissPolicy#THROW}<br>
+ */
+public class NoSuchPropertyException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String propName;
+    private final String field;
+
+    /**
+     * Constructor
+     * @param propName properties file name
+     * @param field field name, null if the whole file is missing
+     */
+    public NoSuchPropertyException(String propName, String field) {
+        super(field == null ? "no property is initialized : " + propName
+                : "no property exist : " + field + " in " + propName);
+        this.propName = propName;
+        this.field = field;
+    }
+
+    public String getPropName() {
+        return this.propName;
+    }
+
+    public String getField() {
+        return this.field;
+    }
+}
@@ -0,0 +1,307 @@
+package com.skplanet.nlp.config;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link PropertyStore} keeping keys and values UTF-8 encoded in direct {@link ByteBuffer}s<br>
+ * <br>
+ * the entries and the open-addressing hash index both live outside the Java heap,
+ * so a large file costs the garbage collector two objects instead of two {@link String}s and a map node per field.
+ * {@link #get(String)} decodes a new {@link String} on every call,
+ * {@link #bytes(String)} and {@link #chars(String)} read the value in place.<br>
+ * <br>
+ * entry layout : key hash, key length, value length, flags, key bytes, value bytes.<br>
+ * the direct buffers are released by the garbage collector once the store is unreachable.<br>
+ */
+final class OffHeapPropertyStore implements PropertyStore {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    private static final int ENTRY_HEADER = 16;
+
+    /**
+     * flag : the value is made of ASCII characters only
+     */
+    private static final int ASCII_VALUE = 1;
+
+    /**
+     * entries, only read with absolute gets
+     */
+    private final ByteBuffer data;
+
+    /**
+     * open-addressing table of entry position + 1, 0 for empty slots
+     */
+    private final ByteBuffer index;
+
+    private final int slots;
+    private final int count;
+
+    /**
+     * Copy the fields of another store
+     * @param source fields to copy
+     */
+    OffHeapPropertyStore(PropertyStore source) {
+        String[] names = source.names();
+        byte[][] keys = new byte[names.length][];
+        byte[][] values = new byte[names.length][];
+        long size = 0;
+        for (int i = 0; i < names.length; i++) {
+            keys[i] = names[i].getBytes(UTF_8);
+            values[i] = source.get(names[i]).getBytes(UTF_8);
+            size += ENTRY_HEADER + keys[i].length + values[i].length;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("too large for off-heap storage : " + size + " bytes");
+        }
+
+        int capacity = 16;
+        while (capacity < names.length * 2) {
+            capacity <<= 1;
+        }
+        this.slots = capacity;
+        this.count = names.length;
+        this.data = ByteBuffer.allocateDirect((int) size);
+        this.index = ByteBuffer.allocateDirect(capacity * 4);
+
+        int position = 0;
+        for (int i = 0; i < names.length; i++) {
+            int hash = names[i].hashCode();
+            this.data.putInt(position, hash);
+            this.data.putInt(position + 4, keys[i].length);
+            this.data.putInt(position + 8, values[i].length);
+            this.data.putInt(position + 12, isAscii(values[i]) ? ASCII_VALUE : 0);
+            this.data.position(position + ENTRY_HEADER);
+            this.data.put(keys[i]);
+            this.data.put(values[i]);
+
+            int slot = spread(hash) & (capacity - 1);
+            while (this.index.getInt(slot * 4) != 0) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            this.index.putInt(slot * 4, position + 1);
+            position += ENTRY_HEADER + keys[i].length + values[i].length;
+        }
+        this.data.position(0);
+    }
+
+    /**
+     * Find the entry of the given field
+     * @return position of the entry, -1 if none
+     */
+    private int find(String field) {
+        int hash = field.hashCode();
+        int mask = this.slots - 1;
+        int slot = spread(hash) & mask;
+        int entry;
+        while ((entry = this.index.getInt(slot * 4)) != 0) {
+            int at = entry - 1;
+            if (this.data.getInt(at) == hash
+                    && keyEquals(at + ENTRY_HEADER, this.data.getInt(at + 4), field)) {
+                return at;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Compare UTF-8 encoded key bytes to a {@link String} without decoding them into a new one
+     */
+    private boolean keyEquals(int start, int length, String field) {
+        int end = start + length;
+        int i = 0;
+        int n = field.length();
+        for (int p = start; p < end; ) {
+            int b = this.data.get(p) & 0xFF;
+            int cp;
+            if (b < 0x80) {
+                cp = b;
+                p += 1;
+            } else if (b < 0xE0) {
+                cp = ((b & 0x1F) << 6) | (this.data.get(p + 1) & 0x3F);
+                p += 2;
+            } else if (b < 0xF0) {
+                cp = ((b & 0x0F) << 12) | ((this.data.get(p + 1) & 0x3F) << 6) | (this.data.get(p + 2) & 0x3F);
+                p += 3;
+            } else {
+                cp = ((b & 0x07) << 18) | ((this.data.get(p + 1) & 0x3F) << 12)
+                        | ((this.data.get(p + 2) & 0x3F) << 6) | (this.data.get(p + 3) & 0x3F);
+                p += 4;
+            }
+
+            if (cp < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                if (i >= n || field.charAt(i) != cp) {
+                    return false;
+                }
+                i++;
+            } else {
+                if (i + 1 >= n || field.charAt(i) != Character.highSurrogate(cp)
+                        || field.charAt(i + 1) != Character.lowSurrogate(cp)) {
+                    return false;
+                }
+                i += 2;
+            }
+        }
+        return i == n;
+    }
+
+    @Override
+    public String get(String field) {
+        int at = find(field);
+        if (at < 0) {
+            return null;
+        }
+        int keyLength = this.data.getInt(at + 4);
+        return decode(at + ENTRY_HEADER + keyLength, this.data.getInt(at + 8),
+                (this.data.getInt(at + 12) & ASCII_VALUE) != 0);
+    }
+
+    /**
+     * Get the UTF-8 encoded value in place
+     * @param field field name
+     * @return read-only view of the value bytes, or null if the field doesn't exist
+     */
+    ByteBuffer bytes(String field) {
+        int at = find(field);
+        if (at < 0) {
+            return null;
+        }
+        ByteBuffer view = this.data.asReadOnlyBuffer();
+        int start = at + ENTRY_HEADER + this.data.getInt(at + 4);
+        view.position(start);
+        view.limit(start + this.data.getInt(at + 8));
+        return view.slice();
+    }
+
+    /**
+     * Get the value as a {@link CharSequence}, read in place for ASCII values, decoded otherwise
+     * @param field field name
+     * @return value, or null if the field doesn't exist
+     */
+    CharSequence chars(String field) {
+        int at = find(field);
+        if (at < 0) {
+            return null;
+        }
+        if ((this.data.getInt(at + 12) & ASCII_VALUE) == 0) {
+            return get(field);
+        }
+        int start = at + ENTRY_HEADER + this.data.getInt(at + 4);
+        return new AsciiSequence(this.data, start, this.data.getInt(at + 8));
+    }
+
+    @Override
+    public Object typed(String field, ValueType type) {
+        return null;
+    }
+
+    @Override
+    public String[] names() {
+        String[] names = new String[this.count];
+        int position = 0;
+        for (int i = 0; i < this.count; i++) {
+            int keyLength = this.data.getInt(position + 4);
+            names[i] = decode(position + ENTRY_HEADER, keyLength, false);
+            position += ENTRY_HEADER + keyLength + this.data.getInt(position + 8);
+        }
+        return names;
+    }
+
+    @Override
+    public int size() {
+        return this.count;
+    }
+
+    @Override
+    public Map<String, String> toMap() {
+        HashMap<String, String> map = new HashMap<String, String>(this.count * 4 / 3 + 1);
+        int position = 0;
+        for (int i = 0; i < this.count; i++) {
+            int keyLength = this.data.getInt(position + 4);
+            int valueLength = this.data.getInt(position + 8);
+            map.put(decode(position + ENTRY_HEADER, keyLength, false),
+                    decode(position + ENTRY_HEADER + keyLength, valueLength, false));
+            position += ENTRY_HEADER + keyLength + valueLength;
+        }
+        return map;
+    }
+
+    /**
+     * Get the number of bytes held outside the heap
+     * @return number of bytes
+     */
+    long offHeapBytes() {
+        return (long) this.data.capacity() + this.index.capacity();
+    }
+
+    private String decode(int start, int length, boolean ascii) {
+        byte[] bytes = new byte[length];
+        ByteBuffer view = this.data.duplicate();
+        view.position(start);
+        view.get(bytes);
+        return new String(bytes, ascii ? ISO_8859_1 : UTF_8);
+    }
+
+    private static boolean isAscii(byte[] bytes) {
+        for (byte b : bytes) {
+            if (b < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * {@link CharSequence} over ASCII bytes of a buffer, without copying them
+     */
+    static final class AsciiSequence implements CharSequence {
+        private final ByteBuffer buf;
+        private final int start;
+        private final int length;
+
+        AsciiSequence(ByteBuffer buf, int start, int length) {
+            this.buf = buf;
+            this.start = start;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return this.length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= this.length) {
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            }
+            return (char) this.buf.get(this.start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > this.length || start > end) {
+                throw new IndexOutOfBoundsException(start + ", " + end);
+            }
+            return new AsciiSequence(this.buf, this.start + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            byte[] bytes = new byte[this.length];
+            ByteBuffer view = this.buf.duplicate();
+            view.position(this.start);
+            view.get(bytes);
+            return new String(bytes, ISO_8859_1);
+        }
+    }
+}
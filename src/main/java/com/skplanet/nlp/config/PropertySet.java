@@ -0,0 +1,360 @@
+package com.skplanet.nlp.config;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable view of one loaded properties file<br>
+ * <br>
+ * Built once per load and never modified afterwards,
+ * so it can be read from any number of threads without locking.
+ * fields are kept in a {@link PropertyStore} : a hash map for parsed files,
+ * an index over the mapped file for {@link Configuration#MAPPED_PHYSICALPATH_LOAD},
+ * a file of a mapped {@link ConfigSnapshot}, or direct buffers with {@link Configuration#setOffHeapStorage(boolean)}.<br>
+ */
+final class PropertySet {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * field and value pairs, never modified after construction
+     */
+    private final PropertyStore values;
+
+    /**
+     * parsed values per type, filled on first typed access, {@link Malformed} for the values that failed to parse.<br>
+     * a reload builds a new {@link PropertySet}, which drops the cache with it.
+     */
+    private final EnumMap<ValueType, ConcurrentHashMap<String, Object>> parsed;
+
+    /**
+     * parsed enum constants per enum class, filled on first enum access, {@link Malformed} included
+     */
+    private final ConcurrentHashMap<Class<?>, ConcurrentHashMap<String, Object>> enums;
+
+    /**
+     * modification time, length and checksum of the source file, null if unknown
+     */
+    private final SourceStamp stamp;
+
+    /**
+     * Cached parse failure, so that a malformed value is not parsed again on every access
+     */
+    private static final class Malformed {
+        private final String message;
+
+        Malformed(String message) {
+            this.message = message;
+        }
+
+        IllegalArgumentException exception() {
+            return new IllegalArgumentException(this.message);
+        }
+    }
+
+    /**
+     * number of bytes read to build this set
+     */
+    private final long bytes;
+
+    /**
+     * values as loaded, before variable references were resolved. null if not interpolated
+     */
+    private final PropertyStore raw;
+
+    /**
+     * Constructor
+     * @param prop loaded properties
+     * @param bytes number of bytes read
+     */
+    PropertySet(Properties prop, long bytes) {
+        this(prop, null, bytes);
+    }
+
+    /**
+     * Constructor
+     * @param prop loaded properties
+     * @param stamp modification time, length and checksum of the source file, null if unknown
+     * @param bytes number of bytes read
+     */
+    PropertySet(Properties prop, SourceStamp stamp, long bytes) {
+        this(new HashPropertyStore(prop), stamp, bytes);
+    }
+
+    /**
+     * Constructor
+     * @param values field and value pairs
+     * @param stamp modification time, length and checksum of the source file, null if unknown
+     * @param bytes number of bytes read
+     */
+    PropertySet(PropertyStore values, SourceStamp stamp, long bytes) {
+        this.stamp = stamp;
+        this.bytes = bytes;
+        this.values = values;
+        this.raw = null;
+        this.parsed = newParsedCache();
+        this.enums = new ConcurrentHashMap<Class<?>, ConcurrentHashMap<String, Object>>();
+    }
+
+    /**
+     * Constructor for the interpolated copy of {@code source}
+     * @param source properties as loaded
+     * @param resolved values with variable references resolved
+     */
+    private PropertySet(PropertySet source, PropertyStore resolved) {
+        this.stamp = source.stamp;
+        this.bytes = source.bytes;
+        this.values = resolved;
+        this.raw = source.values;
+        this.parsed = newParsedCache();
+        this.enums = new ConcurrentHashMap<Class<?>, ConcurrentHashMap<String, Object>>();
+    }
+
+    private static EnumMap<ValueType, ConcurrentHashMap<String, Object>> newParsedCache() {
+        EnumMap<ValueType, ConcurrentHashMap<String, Object>> cache =
+                new EnumMap<ValueType, ConcurrentHashMap<String, Object>>(ValueType.class);
+        for (ValueType type : ValueType.values()) {
+            cache.put(type, new ConcurrentHashMap<String, Object>());
+        }
+        return cache;
+    }
+
+    /**
+     * Resolve the variable references, see {@link Interpolator}.<br>
+     * the resolved copy is always kept in a hash map, whatever the store of this set.
+     * @param previous previous load of the same file, reused for the fields that didn't change. null if none
+     * @return interpolated copy, or this set if it is already interpolated
+     * @throws IOException on cyclic references
+     */
+    PropertySet interpolated(PropertySet previous) throws IOException {
+        if (this.raw != null) {
+            return this;
+        }
+        boolean incremental = previous != null && previous.raw != null;
+        HashMap<String, String> resolved = Interpolator.resolve(this.values.toMap(),
+                incremental ? previous.raw.toMap() : null, incremental ? previous.values.toMap() : null);
+        return new PropertySet(this, new HashPropertyStore(resolved, this.values.names()));
+    }
+
+    /**
+     * Move the fields outside the heap, see {@link OffHeapPropertyStore}.<br>
+     * sets already stored outside the heap (mapped files and snapshots) are returned as they are.
+     * the raw values of an interpolated set are dropped, so the next reload resolves all the fields again.
+     * @return copy stored outside the heap, or this set
+     */
+    PropertySet offHeap() {
+        if (!(this.values instanceof HashPropertyStore)) {
+            return this;
+        }
+        return new PropertySet(new OffHeapPropertyStore(this.values), this.stamp, this.bytes);
+    }
+
+    /**
+     * Get the value for the given field
+     * @param field field name
+     * @return value, or null if the field doesn't exist
+     */
+    String get(String field) {
+        return this.values.get(field);
+    }
+
+    /**
+     * Get the UTF-8 encoded value for the given field, in place for off-heap sets
+     * @param field field name
+     * @return read-only buffer, or null if the field doesn't exist
+     */
+    ByteBuffer getBytes(String field) {
+        if (this.values instanceof OffHeapPropertyStore) {
+            return ((OffHeapPropertyStore) this.values).bytes(field);
+        }
+        String value = this.values.get(field);
+        return value == null ? null : ByteBuffer.wrap(value.getBytes(UTF_8)).asReadOnlyBuffer();
+    }
+
+    /**
+     * Get the value for the given field, in place for ASCII values of off-heap sets
+     * @param field field name
+     * @return value, or null if the field doesn't exist
+     */
+    CharSequence getChars(String field) {
+        if (this.values instanceof OffHeapPropertyStore) {
+            return ((OffHeapPropertyStore) this.values).chars(field);
+        }
+        return this.values.get(field);
+    }
+
+    /**
+     * Get the parsed value for the given field, parsing it on first access.<br>
+     * a malformed value is parsed once as well, later accesses throw again without parsing it.
+     * @param field field name
+     * @param type value type
+     * @return parsed value, or null if the field doesn't exist
+     * @throws IllegalArgumentException if the value is malformed
+     */
+    Object parsed(String field, ValueType type) {
+        if (field == null) {
+            return null;
+        }
+        ConcurrentHashMap<String, Object> cache = this.parsed.get(type);
+        Object value = cache.get(field);
+        if (value == null) {
+            value = this.values.typed(field, type);
+            if (value == null) {
+                String raw = this.values.get(field);
+                if (raw == null) {
+                    return null;
+                }
+                try {
+                    value = type.parse(raw);
+                } catch (IllegalArgumentException e) {
+                    value = new Malformed(e.getMessage());
+                }
+            }
+            cache.put(field, value);
+        }
+        if (value instanceof Malformed) {
+            throw ((Malformed) value).exception();
+        }
+        return value;
+    }
+
+    /**
+     * Get the enum constant for the given field, parsing it on first access.<br>
+     * a malformed value is parsed once as well, later accesses throw again without parsing it.
+     * @param field field name
+     * @param type enum class
+     * @return enum constant, or null if the field doesn't exist
+     * @throws IllegalArgumentException if the value is not a constant of {@code type}
+     */
+    <E extends Enum<E>> E parsedEnum(String field, Class<E> type) {
+        if (field == null) {
+            return null;
+        }
+        ConcurrentHashMap<String, Object> cache = this.enums.get(type);
+        if (cache == null) {
+            ConcurrentHashMap<String, Object> created = new ConcurrentHashMap<String, Object>();
+            cache = this.enums.putIfAbsent(type, created);
+            if (cache == null) {
+                cache = created;
+            }
+        }
+        Object value = cache.get(field);
+        if (value == null) {
+            String raw = this.values.get(field);
+            if (raw == null) {
+                return null;
+            }
+            try {
+                value = parseEnum(raw, type);
+            } catch (IllegalArgumentException e) {
+                value = new Malformed(e.getMessage());
+            }
+            cache.put(field, value);
+        }
+        if (value instanceof Malformed) {
+            throw ((Malformed) value).exception();
+        }
+        return type.cast(value);
+    }
+
+    /**
+     * Parse an enum constant, exact name first and upper case name next
+     * @param value raw value
+     * @param type enum class
+     * @return enum constant
+     */
+    static <E extends Enum<E>> E parseEnum(String value, Class<E> type) {
+        String v = value.trim();
+        try {
+            return Enum.valueOf(type, v);
+        } catch (IllegalArgumentException e) {
+            return Enum.valueOf(type, v.toUpperCase());
+        }
+    }
+
+    /**
+     * Get the modification time, length and checksum of the source file
+     * @return stamp, null if unknown
+     */
+    SourceStamp stamp() {
+        return this.stamp;
+    }
+
+    /**
+     * Get the number of bytes read to build this set
+     * @return number of bytes
+     */
+    long bytes() {
+        return this.bytes;
+    }
+
+    /**
+     * Get the fields that were added, removed or changed between two loads
+     * @param before previous properties, null if the file was not loaded
+     * @param after new properties
+     * @return changed field names
+     */
+    static Set<String> changedFields(PropertySet before, PropertySet after) {
+        HashSet<String> changed = new HashSet<String>();
+        for (String field : after.values.names()) {
+            String old = before == null ? null : before.values.get(field);
+            if (old == null || !old.equals(after.values.get(field))) {
+                changed.add(field);
+            }
+        }
+        if (before != null) {
+            for (String field : before.values.names()) {
+                if (after.values.get(field) == null) {
+                    changed.add(field);
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Get the number of fields
+     * @return number of fields
+     */
+    int size() {
+        return this.values.size();
+    }
+
+    /**
+     * Get all the field names
+     * @return copy of the field names
+     */
+    String[] names() {
+        return this.values.names();
+    }
+
+    /**
+     * Get all the field names
+     * @return list of the field names
+     */
+    List<String> namesList() {
+        return new ArrayList<String>(Arrays.asList(this.values.names()));
+    }
+
+    /**
+     * Copy the contents into a new {@link Properties}
+     * @return properties object
+     */
+    Properties toProperties() {
+        Properties prop = new Properties();
+        for (String name : this.values.names()) {
+            prop.setProperty(name, this.values.get(name));
+        }
+        return prop;
+    }
+}
@@ -0,0 +1,44 @@
+package com.skplanet.nlp.config;
+
+import java.util.Map;
+
+/**
+ * Storage of the fields of one loaded properties file, read by {@link PropertySet}<br>
+ * <br>
+ * implementations are immutable once built, and safe to read from any number of threads.<br>
+ */
+interface PropertyStore {
+
+    /**
+     * Get the value for the given field
+     * @param field field name
+     * @return value, or null if the field doesn't exist
+     */
+    String get(String field);
+
+    /**
+     * Get the value for the given field, already parsed when the store was built
+     * @param field field name
+     * @param type value type
+     * @return parsed value, or null if the field doesn't exist or was not parsed in advance
+     */
+    Object typed(String field, ValueType type);
+
+    /**
+     * Get all the field names
+     * @return new array of the field names
+     */
+    String[] names();
+
+    /**
+     * Get the number of fields
+     * @return number of fields
+     */
+    int size();
+
+    /**
+     * Get the fields as a map, for whole-file processing such as interpolation
+     * @return field and value pairs, must not be modified
+     */
+    Map<String, String> toMap();
+}
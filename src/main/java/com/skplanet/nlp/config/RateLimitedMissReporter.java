@@ -0,0 +1,64 @@
+package com.skplanet.nlp.config;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link MissReporter} printing at most one warning per interval to stderr<br>
+ * <br>
+ * misses in between are counted and reported with the next warning.
+ * a suppressed miss takes no lock and allocates nothing.<br>
+ */
+public class RateLimitedMissReporter implements MissReporter {
+
+    private final long intervalNanos;
+
+    // System.nanoTime() from which on the next warning may be printed
+    private final AtomicLong next;
+
+    private final LongAdder suppressed;
+
+    /**
+     * Constructor
+     * @param interval minimum time between two warnings
+     * @param unit unit of {@code interval}
+     */
+    public RateLimitedMissReporter(long interval, TimeUnit unit) {
+        this.intervalNanos = unit.toNanos(interval);
+        this.next = new AtomicLong(System.nanoTime());
+        this.suppressed = new LongAdder();
+    }
+
+    @Override
+    public void missingFile(String propName) {
+        if (acquire()) {
+            System.err.println("[WARNING] no property is initialized : " + propName + suffix());
+        }
+    }
+
+    @Override
+    public void missingField(String propName, String field) {
+        if (acquire()) {
+            System.err.println("[WARNING] no property exist : " + field + " in " + propName + suffix());
+        }
+    }
+
+    /**
+     * Check whether a warning may be printed now, count the miss otherwise
+     */
+    private boolean acquire() {
+        long now = System.nanoTime();
+        long at = this.next.get();
+        if (now - at < 0 || !this.next.compareAndSet(at, now + this.intervalNanos)) {
+            this.suppressed.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private String suffix() {
+        long count = this.suppressed.sumThenReset();
+        return count > 0 ? " (" + count + " more misses since the last warning)" : "";
+    }
+}
@@ -0,0 +1,117 @@
+package com.skplanet.nlp.config;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link PropertyStore} reading one file of a mapped {@link ConfigSnapshot} in place<br>
+ * <br>
+ * entries are sorted by key hash : a lookup is a binary search over the hashes,
+ * then a comparison with the keys of the same hash.<br>
+ */
+final class SnapshotPropertyStore implements PropertyStore {
+
+    private final ByteBuffer buf;
+    private final ConfigSnapshot.SnapshotStrings strings;
+
+    // position of the first entry
+    private final int start;
+
+    private final int count;
+
+    SnapshotPropertyStore(ByteBuffer buf, ConfigSnapshot.SnapshotStrings strings, int start, int count) {
+        this.buf = buf;
+        this.strings = strings;
+        this.start = start;
+        this.count = count;
+    }
+
+    @Override
+    public String get(String field) {
+        int at = find(field);
+        return at < 0 ? null : this.strings.get(this.buf.getInt(at + 8));
+    }
+
+    @Override
+    public Object typed(String field, ValueType type) {
+        int at = find(field);
+        if (at < 0) {
+            return null;
+        }
+        int tag = this.buf.getInt(at + 12);
+        long bits = this.buf.getLong(at + 16);
+        switch (type) {
+            case INT:
+                return tag == ConfigSnapshot.TAG_LONG && bits == (int) bits ? Integer.valueOf((int) bits) : null;
+            case LONG:
+                return tag == ConfigSnapshot.TAG_LONG ? Long.valueOf(bits) : null;
+            case DOUBLE:
+                return tag == ConfigSnapshot.TAG_DOUBLE ? Double.valueOf(Double.longBitsToDouble(bits)) : null;
+            case BOOLEAN:
+                return tag == ConfigSnapshot.TAG_BOOLEAN ? Boolean.valueOf(bits != 0) : null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Find the entry of the given field
+     * @return position of the entry, -1 if none
+     */
+    private int find(String field) {
+        int hash = field.hashCode();
+        int lo = 0;
+        int hi = this.count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int h = hashAt(mid);
+            if (h < hash) {
+                lo = mid + 1;
+            } else if (h > hash) {
+                hi = mid - 1;
+            } else {
+                // back to the first entry with this hash
+                while (mid > 0 && hashAt(mid - 1) == hash) {
+                    mid--;
+                }
+                for (int i = mid; i < this.count && hashAt(i) == hash; i++) {
+                    int at = this.start + i * ConfigSnapshot.ENTRY_SIZE;
+                    if (this.strings.get(this.buf.getInt(at + 4)).equals(field)) {
+                        return at;
+                    }
+                }
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private int hashAt(int i) {
+        return this.buf.getInt(this.start + i * ConfigSnapshot.ENTRY_SIZE);
+    }
+
+    @Override
+    public String[] names() {
+        String[] names = new String[this.count];
+        for (int i = 0; i < this.count; i++) {
+            names[i] = this.strings.get(this.buf.getInt(this.start + i * ConfigSnapshot.ENTRY_SIZE + 4));
+        }
+        return names;
+    }
+
+    @Override
+    public int size() {
+        return this.count;
+    }
+
+    @Override
+    public Map<String, String> toMap() {
+        HashMap<String, String> map = new HashMap<String, String>(this.count * 4 / 3 + 1);
+        for (int i = 0; i < this.count; i++) {
+            int at = this.start + i * ConfigSnapshot.ENTRY_SIZE;
+            map.put(this.strings.get(this.buf.getInt(at + 4)), this.strings.get(this.buf.getInt(at + 8)));
+        }
+        return map;
+    }
+}
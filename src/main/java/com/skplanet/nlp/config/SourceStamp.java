@@ -0,0 +1,65 @@
+package com.skplanet.nlp.config;
+
+/**
+ * Modification time, length and optional checksum of a loaded file,
+ * used to skip reloading files that didn't change<br>
+ */
+final class SourceStamp {
+
+    final long modified;
+    final long length;
+
+    // hex encoded checksum, null if not computed yet
+    volatile String checksum;
+
+    SourceStamp(long modified, long length, String checksum) {
+        this.modified = modified;
+        this.length = length;
+        this.checksum = checksum;
+    }
+
+    /**
+     * Record the checksum of a file loaded without it, see {@link Configuration#setVerifyHdfsChecksum(boolean)}
+     * @param checksum encoded checksum
+     */
+    void setChecksum(String checksum) {
+        this.checksum = checksum;
+    }
+
+    /**
+     * Check whether the file is unchanged
+     * @param other stamp of the current file
+     * @return true if modification time, length and checksum (when both have one) are the same
+     */
+    boolean sameAs(SourceStamp other) {
+        if (other == null || this.modified != other.modified || this.length != other.length) {
+            return false;
+        }
+        if (this.checksum == null || other.checksum == null) {
+            return this.checksum == null && other.checksum == null;
+        }
+        return this.checksum.equals(other.checksum);
+    }
+
+    /**
+     * Hex encode checksum bytes
+     * @param algorithm checksum algorithm name
+     * @param bytes checksum bytes
+     * @return encoded checksum
+     */
+    static String encode(String algorithm, byte[] bytes) {
+        StringBuilder out = new StringBuilder(algorithm.length() + 1 + bytes.length * 2);
+        out.append(algorithm).append(':');
+        for (byte b : bytes) {
+            out.append(Character.forDigit((b >> 4) & 0xf, 16));
+            out.append(Character.forDigit(b & 0xf, 16));
+        }
+        return out.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "modified=" + this.modified + ", length=" + this.length
+                + (this.checksum == null ? "" : ", checksum=" + this.checksum);
+    }
+}
@@ -0,0 +1,156 @@
+package com.skplanet.nlp.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Value types supported by the typed accessors of {@link Configuration}<br>
+ * <br>
+ * each type knows how to parse the raw property value.
+ * parsed values are cached in {@link PropertySet}, so parsing happens once per field and load.
+ * enums need their class to be parsed, see {@link PropertySet#parsedEnum(String, Class)}.<br>
+ */
+enum ValueType {
+
+    INT {
+        @Override
+        Object parse(String value) {
+            return Integer.valueOf(value.trim());
+        }
+    },
+    LONG {
+        @Override
+        Object parse(String value) {
+            return Long.valueOf(value.trim());
+        }
+    },
+    DOUBLE {
+        @Override
+        Object parse(String value) {
+            return Double.valueOf(value.trim());
+        }
+    },
+    BOOLEAN {
+        @Override
+        Object parse(String value) {
+            String v = value.trim();
+            if (v.equalsIgnoreCase("true") || v.equalsIgnoreCase("yes") || v.equalsIgnoreCase("on") || v.equals("1")) {
+                return Boolean.TRUE;
+            }
+            if (v.equalsIgnoreCase("false") || v.equalsIgnoreCase("no") || v.equalsIgnoreCase("off") || v.equals("0")) {
+                return Boolean.FALSE;
+            }
+            throw new IllegalArgumentException("not a boolean : " + value);
+        }
+    },
+    /**
+     * duration in nanoseconds, e.g. "30s", "500ms", "2h". a bare number is milliseconds.
+     */
+    DURATION {
+        @Override
+        Object parse(String value) {
+            String v = value.trim();
+            int split = unitStart(v);
+            long amount = Long.parseLong(v.substring(0, split).trim());
+            String unit = v.substring(split).trim().toLowerCase();
+
+            TimeUnit timeUnit;
+            if (unit.length() == 0 || unit.equals("ms")) {
+                timeUnit = TimeUnit.MILLISECONDS;
+            } else if (unit.equals("ns")) {
+                timeUnit = TimeUnit.NANOSECONDS;
+            } else if (unit.equals("us")) {
+                timeUnit = TimeUnit.MICROSECONDS;
+            } else if (unit.equals("s")) {
+                timeUnit = TimeUnit.SECONDS;
+            } else if (unit.equals("m") || unit.equals("min")) {
+                timeUnit = TimeUnit.MINUTES;
+            } else if (unit.equals("h")) {
+                timeUnit = TimeUnit.HOURS;
+            } else if (unit.equals("d")) {
+                timeUnit = TimeUnit.DAYS;
+            } else {
+                throw new IllegalArgumentException("unknown duration unit : " + value);
+            }
+            return Long.valueOf(timeUnit.toNanos(amount));
+        }
+    },
+    /**
+     * size in bytes, e.g. "512MB", "4k", "1GiB". multiples of 1024, a bare number is bytes.
+     */
+    BYTES {
+        @Override
+        Object parse(String value) {
+            String v = value.trim();
+            int split = unitStart(v);
+            long amount = Long.parseLong(v.substring(0, split).trim());
+            String unit = v.substring(split).trim().toLowerCase();
+            if (unit.endsWith("ib")) {
+                unit = unit.substring(0, unit.length() - 2);
+            } else if (unit.length() > 1 && unit.endsWith("b")) {
+                unit = unit.substring(0, unit.length() - 1);
+            }
+
+            int shift;
+            if (unit.length() == 0 || unit.equals("b")) {
+                shift = 0;
+            } else if (unit.equals("k")) {
+                shift = 10;
+            } else if (unit.equals("m")) {
+                shift = 20;
+            } else if (unit.equals("g")) {
+                shift = 30;
+            } else if (unit.equals("t")) {
+                shift = 40;
+            } else {
+                throw new IllegalArgumentException("unknown size unit : " + value);
+            }
+            if (shift > 0 && (amount > (Long.MAX_VALUE >> shift) || amount < (Long.MIN_VALUE >> shift))) {
+                throw new IllegalArgumentException("size overflow : " + value);
+            }
+            return Long.valueOf(amount << shift);
+        }
+    },
+    /**
+     * comma separated list, items are trimmed and empty items are dropped
+     */
+    LIST {
+        @Override
+        Object parse(String value) {
+            ArrayList<String> list = new ArrayList<String>();
+            for (String item : value.split(",")) {
+                String v = item.trim();
+                if (v.length() > 0) {
+                    list.add(v);
+                }
+            }
+            list.trimToSize();
+            return Collections.unmodifiableList(list);
+        }
+    };
+
+    /**
+     * Parse the raw property value
+     * @param value raw value
+     * @return parsed value
+     * @throws IllegalArgumentException if the value is malformed
+     */
+    abstract Object parse(String value);
+
+    /**
+     * Find where the unit suffix starts
+     * @param value trimmed value
+     * @return index of the first character of the unit
+     */
+    private static int unitStart(String value) {
+        int i = 0;
+        if (i < value.length() && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            i++;
+        }
+        while (i < value.length() && Character.isDigit(value.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,215 @@
+package com.skplanet.nlp.config;
+
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.data.Stat;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Connection to one ZooKeeper ensemble, reading properties files stored as znode data<br>
+ * <br>
+ * every read leaves a watch on the znode. when the znode is created, changed or deleted,
+ * the listener is told which file to reload, the reload reads the znode again and sets the next watch.
+ * when the session expires, a new session is opened and every watched file is reloaded,
+ * and files that failed to read are reloaded as soon as the connection is back.<br>
+ * <br>
+ * reads wait for the connection only until one session timeout after the session was opened,
+ * later reads fail right away while disconnected, so many files can't delay startup one timeout each.<br>
+ */
+final class ZooKeeperSource implements Watcher, Closeable {
+
+    static final String PREFIX = "zk://";
+
+    /**
+     * Receives the files to reload
+     */
+    interface Listener {
+        void changed(String fileName);
+    }
+
+    private final String connectString;
+    private final int sessionTimeout;
+    private final Listener listener;
+
+    private volatile ZooKeeper zk;
+
+    // System.currentTimeMillis() until which reads wait for the connection
+    private volatile long connectDeadline;
+
+    // watched znodes : path -> file name
+    private final ConcurrentHashMap<String, String> watched;
+
+    // files whose last read failed : file name -> file name
+    private final ConcurrentHashMap<String, String> pending;
+
+    private volatile boolean closed = false;
+
+    /**
+     * Connect to the ensemble, in the background
+     * @param connectString comma separated host:port list
+     * @param sessionTimeout session timeout in milliseconds
+     * @param listener receives the files to reload
+     */
+    ZooKeeperSource(String connectString, int sessionTimeout, Listener listener) throws IOException {
+        this.connectString = connectString;
+        this.sessionTimeout = sessionTimeout;
+        this.listener = listener;
+        this.watched = new ConcurrentHashMap<String, String>();
+        this.pending = new ConcurrentHashMap<String, String>();
+        this.connectDeadline = System.currentTimeMillis() + sessionTimeout;
+        this.zk = new ZooKeeper(connectString, sessionTimeout, this);
+    }
+
+    /**
+     * Read the data of the given znode and watch it
+     * @param fileName file name the znode is loaded as
+     * @param path znode path
+     * @param stat filled with the znode stat
+     * @return znode data
+     * @throws FileNotFoundException if the znode doesn't exist, it is watched for creation
+     */
+    byte[] read(String fileName, String path, Stat stat) throws IOException {
+        this.watched.put(path, fileName);
+        this.pending.put(fileName, fileName);
+        try {
+            ZooKeeper z = connected();
+            byte[] data;
+            while (true) {
+                try {
+                    data = z.getData(path, this, stat);
+                    break;
+                } catch (KeeperException.NoNodeException e) {
+                    // watch for creation, unless it was created in between
+                    if (z.exists(path, this) == null) {
+                        throw new FileNotFoundException("no znode : " + path);
+                    }
+                }
+            }
+            this.pending.remove(fileName);
+            return data == null ? new byte[0] : data;
+        } catch (KeeperException e) {
+            throw new IOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while reading : " + path);
+        }
+    }
+
+    /**
+     * Read the data of the given znode, without watching it
+     * @param path znode path
+     * @return znode data
+     * @throws FileNotFoundException if the znode doesn't exist
+     */
+    byte[] peek(String path) throws IOException {
+        try {
+            byte[] data = connected().getData(path, false, null);
+            return data == null ? new byte[0] : data;
+        } catch (KeeperException.NoNodeException e) {
+            throw new FileNotFoundException("no znode : " + path);
+        } catch (KeeperException e) {
+            throw new IOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while reading : " + path);
+        }
+    }
+
+    /**
+     * Wait for the connection, at most until one session timeout after the session was opened
+     */
+    private ZooKeeper connected() throws IOException, InterruptedException {
+        synchronized (this) {
+            while (!this.zk.getState().isConnected()) {
+                long left = this.connectDeadline - System.currentTimeMillis();
+                if (this.closed || left <= 0) {
+                    throw new IOException("can't connect to zookeeper : " + this.connectString);
+                }
+                wait(left);
+            }
+            return this.zk;
+        }
+    }
+
+    @Override
+    public void process(WatchedEvent event) {
+        if (event.getType() != Event.EventType.None) {
+            String fileName = event.getPath() == null ? null : this.watched.get(event.getPath());
+            if (fileName != null) {
+                this.listener.changed(fileName);
+            }
+            return;
+        }
+
+        switch (event.getState()) {
+            case SyncConnected:
+            case ConnectedReadOnly:
+                synchronized (this) {
+                    notifyAll();
+                }
+                // watches of the session are kept, retry what failed while disconnected
+                for (String fileName : this.pending.keySet()) {
+                    this.listener.changed(fileName);
+                }
+                break;
+            case Expired:
+                reconnect();
+                break;
+            default:
+                // disconnected : the client reconnects by itself, the loaded properties are kept
+                break;
+        }
+    }
+
+    /**
+     * Open a new session after expiration, the watches of the old one are lost : reload every watched file
+     */
+    private void reconnect() {
+        synchronized (this) {
+            if (this.closed) {
+                return;
+            }
+            System.err.println("[WARNING] zookeeper session expired, reconnecting : " + this.connectString);
+            try {
+                this.zk.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            try {
+                this.connectDeadline = System.currentTimeMillis() + this.sessionTimeout;
+                this.zk = new ZooKeeper(this.connectString, this.sessionTimeout, this);
+            } catch (IOException e) {
+                System.err.println("[ERROR] can't reconnect to zookeeper : " + this.connectString);
+                e.printStackTrace();
+                return;
+            }
+        }
+        for (Map.Entry<String, String> entry : this.watched.entrySet()) {
+            this.pending.put(entry.getValue(), entry.getValue());
+        }
+    }
+
+    /**
+     * Close the session, watched files are not reloaded anymore
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            this.closed = true;
+            notifyAll();
+        }
+        try {
+            this.zk.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.skplanet.nlp.example;
+
+
+import com.skplanet.nlp.writer.ConfigWriter;
+import com.skplanet.nlp.writer.WriteResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * Compares writing many configuration files one by one with {@link ConfigWriter#writeAll(int, boolean)}<br>
+ * <br>
+ * every run regenerates the same shard files with new values, the last run with unchanged values,
+ * which {@link ConfigWriter#writeAll(int, boolean)} leaves untouched.<br>
+ * <br>
+ * usage: BatchWriting [files] [entries per file] [parallelism]<br>
+ */
+public class BatchWriting {
+
+    public static void main(String[] args) throws IOException {
+        int files = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int entries = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int parallelism = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+
+        File dir = Files.createTempDirectory("batch").toFile();
+        System.out.println("mode\tms\twritten\tunchanged");
+
+        // one by one
+        ConfigWriter writer = generate(dir, files, entries, 1);
+        long begin = System.nanoTime();
+        for (int i = 0; i < files; i++) {
+            writer.write("shard" + i + ".properties");
+            writer.close("shard" + i + ".properties");
+        }
+        System.out.println("sequential\t" + (System.nanoTime() - begin) / 1000000 + "\t" + files + "\t0");
+
+        writer = generate(dir, files, entries, 2);
+        begin = System.nanoTime();
+        List<WriteResult> results = writer.writeAll(parallelism, false);
+        report("writeAll", begin, results);
+
+        writer = generate(dir, files, entries, 3);
+        begin = System.nanoTime();
+        results = writer.writeAll(parallelism, true);
+        report("writeAll(group sync)", begin, results);
+
+        writer = generate(dir, files, entries, 3);
+        begin = System.nanoTime();
+        results = writer.writeAll(parallelism, false);
+        report("writeAll(unchanged)", begin, results);
+    }
+
+    /**
+     * Open the shard files and add their items, values depending on {@code version}
+     */
+    private static ConfigWriter generate(File dir, int files, int entries, int version) {
+        ConfigWriter writer = ConfigWriter.newInstance();
+        writer.setBaseDir(dir.getPath());
+        for (int i = 0; i < files; i++) {
+            String fileName = "shard" + i + ".properties";
+            writer.open(fileName);
+            writer.addHeader(fileName, "shard " + i);
+            for (int j = 0; j < entries; j++) {
+                writer.addSingleConfig(fileName, "shard." + i + ".field" + j, "value" + j + "." + version);
+            }
+        }
+        return writer;
+    }
+
+    private static void report(String mode, long begin, List<WriteResult> results) {
+        long elapsed = (System.nanoTime() - begin) / 1000000;
+        int written = 0;
+        int unchanged = 0;
+        for (WriteResult result : results) {
+            if (!result.isSuccess()) {
+                System.err.println("[ERROR] " + result);
+            } else if (result.isChanged()) {
+                written++;
+            } else {
+                unchanged++;
+            }
+        }
+        System.out.println(mode + "\t" + elapsed + "\t" + written + "\t" + unchanged);
+    }
+}
@@ -0,0 +1,173 @@
+package com.skplanet.nlp.example;
+
+
+import com.skplanet.nlp.config.Configuration;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Compares heap footprint and garbage collection cost of the configuration storage layouts<br>
+ * <br>
+ * 1. legacy : HashMap of {@link Properties}, the layout before the snapshot store <br>
+ * 2. heap : {@link Configuration} with the default store <br>
+ * 3. off-heap : {@link Configuration} with {@link Configuration#setOffHeapStorage(boolean)} <br>
+ * <br>
+ * for each layout : retained heap, direct memory, duration of full collections with the layout live,
+ * and collection time while reading fields and allocating short-lived garbage.<br>
+ * <br>
+ * usage: OffHeapFootprint [files] [entries per file] [seconds per run]<br>
+ * run with a fixed heap, e.g. -Xms2g -Xmx2g<br>
+ */
+public class OffHeapFootprint {
+
+    // keeps the reads from being optimized away
+    private static volatile int blackhole;
+
+    private interface Layout {
+        String read(String propName, String field);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int files = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int entries = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        //--------------------------------
+        // sample properties files
+        //--------------------------------
+        final String[] names = new String[files];
+        for (int f = 0; f < files; f++) {
+            File propFile = File.createTempFile("footprint", ".properties");
+            propFile.deleteOnExit();
+            BufferedWriter writer = new BufferedWriter(new FileWriter(propFile));
+            try {
+                for (int i = 0; i < entries; i++) {
+                    writer.write("model.shard" + i + ".resource.path=/data/nlp/resource/" + f + "/shard" + i + ".bin\n");
+                }
+            } finally {
+                writer.close();
+            }
+            names[f] = propFile.getPath();
+        }
+
+        final String[] fields = new String[entries];
+        for (int i = 0; i < entries; i++) {
+            fields[i] = "model.shard" + i + ".resource.path";
+        }
+
+        System.out.println("files : " + files + ", entries per file : " + entries);
+        System.out.println("layout\tretained heap MB\tdirect MB\tfull gc ms\tchurn gc ms\treads/s");
+
+        //--------------------------------
+        // legacy : HashMap<String, Properties>
+        //--------------------------------
+        long before = usedHeap();
+        final HashMap<String, Properties> legacy = new HashMap<String, Properties>();
+        for (String name : names) {
+            Properties prop = new Properties();
+            Reader reader = new FileReader(name);
+            try {
+                prop.load(reader);
+            } finally {
+                reader.close();
+            }
+            legacy.put(name, prop);
+        }
+        report("legacy", before, names, fields, seconds, new Layout() {
+            @Override
+            public String read(String propName, String field) {
+                return legacy.get(propName).getProperty(field);
+            }
+        });
+        legacy.clear();
+
+        //--------------------------------
+        // Configuration, heap and off-heap
+        //--------------------------------
+        for (final boolean offHeap : new boolean[]{false, true}) {
+            before = usedHeap();
+            final Configuration config = Configuration.newInstance();
+            config.setOffHeapStorage(offHeap);
+            for (String name : names) {
+                config.loadProperties(name, Configuration.PHYSICALPATH_LOAD);
+            }
+            report(offHeap ? "off-heap" : "heap", before, names, fields, seconds, new Layout() {
+                @Override
+                public String read(String propName, String field) {
+                    return config.readProperty(propName, field);
+                }
+            });
+            config.shutdown();
+        }
+    }
+
+    private static void report(String label, long before, String[] names, String[] fields, int seconds,
+                               Layout layout) {
+        long retained = usedHeap() - before;
+        long direct = directMemory();
+
+        // full collections with the layout live : the collector traces every retained object
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        long fullGc = (System.nanoTime() - start) / 1000000;
+
+        // reads with short-lived garbage, as a request handler would produce
+        long gcBefore = gcMillis();
+        Random random = new Random(1);
+        long reads = 0;
+        long end = System.currentTimeMillis() + seconds * 1000L;
+        int sink = 0;
+        while (System.currentTimeMillis() < end) {
+            for (int i = 0; i < 1000; i++) {
+                String value = layout.read(names[random.nextInt(names.length)], fields[random.nextInt(fields.length)]);
+                byte[] garbage = new byte[256];
+                garbage[0] = (byte) value.length();
+                sink += garbage[0];
+            }
+            reads += 1000;
+        }
+        blackhole = sink;
+        long churnGc = gcMillis() - gcBefore;
+
+        System.out.println(label + "\t" + retained / (1024 * 1024) + "\t" + direct / (1024 * 1024) + "\t"
+                + fullGc + "\t" + churnGc + "\t" + reads / seconds);
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static long directMemory() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+}
@@ -0,0 +1,129 @@
+package com.skplanet.nlp.example;
+
+
+import com.skplanet.nlp.config.Configuration;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures {@link Configuration#readProperty(String, String)} throughput with growing number of threads<br>
+ * and compares it with reading a shared {@link Properties} (synchronized {@link java.util.Hashtable}) directly.<br>
+ * <br>
+ * usage: ReadContention [max threads] [seconds per run]<br>
+ */
+public class ReadContention {
+
+    private static final int FIELD_COUNT = 1000;
+
+    // keeps the reads from being optimized away
+    private static volatile int blackhole;
+
+    private interface Reader {
+        String read(String field);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        //--------------------------------
+        // sample properties file
+        //--------------------------------
+        File propFile = File.createTempFile("contention", ".properties");
+        propFile.deleteOnExit();
+        BufferedWriter writer = new BufferedWriter(new FileWriter(propFile));
+        try {
+            for (int i = 0; i < FIELD_COUNT; i++) {
+                writer.write("field" + i + "=value" + i + "\n");
+            }
+        } finally {
+            writer.close();
+        }
+
+        final String propName = propFile.getPath();
+        final Configuration config = Configuration.getInstance();
+        config.loadProperties(propName, Configuration.PHYSICALPATH_LOAD);
+        final Properties shared = config.getProperties(propName);
+
+        final String[] fields = new String[FIELD_COUNT];
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            fields[i] = "field" + i;
+        }
+
+        Reader snapshotReader = new Reader() {
+            @Override
+            public String read(String field) {
+                return config.readProperty(propName, field);
+            }
+        };
+        Reader hashtableReader = new Reader() {
+            @Override
+            public String read(String field) {
+                return shared.getProperty(field);
+            }
+        };
+
+        System.out.println("threads\tsnapshot(ops/s)\thashtable(ops/s)");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            long snapshot = run(snapshotReader, fields, threads, seconds);
+            long hashtable = run(hashtableReader, fields, threads, seconds);
+            System.out.println(threads + "\t" + snapshot + "\t" + hashtable);
+        }
+    }
+
+    /**
+     * Run readers on the given number of threads
+     * @return read operations per second
+     */
+    private static long run(final Reader reader, final String[] fields, int threads, int seconds)
+            throws InterruptedException {
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicLong total = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            final int offset = t;
+            Thread worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    long ops = 0;
+                    int i = offset;
+                    int sink = 0;
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    while (running.get()) {
+                        for (int j = 0; j < 100; j++) {
+                            String value = reader.read(fields[i]);
+                            sink += value.length();
+                            i = (i + 1) % fields.length;
+                        }
+                        ops += 100;
+                    }
+                    blackhole = sink;
+                    total.addAndGet(ops);
+                    done.countDown();
+                }
+            });
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        start.countDown();
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        done.await();
+
+        return total.get() / seconds;
+    }
+}
@@ -1,6 +1,8 @@
 package com.skplanet.nlp.example;
 
 
+import com.skplanet.nlp.writer.ConfigFile;
+import com.skplanet.nlp.writer.ConfigStream;
 import com.skplanet.nlp.writer.ConfigWriter;
 
 /**
@@ -33,9 +35,31 @@ public class WritingConfig {
         String[] values = new String[]{"value2", "value3", "value4"};
         writer.addMultipleConfig("sample.properties", fields, values);
 
+        // [optional] compile everything written so far into a binary snapshot,
+        // loaded at once with Configuration.loadSnapshot()
+        writer.writeSnapshot("config.snap");
+
         writer.close("sample.properties");
         // or
         //writer.closeAll();
 
+        // very large outputs : stream entries to the file as they are added, sorted by key
+        // add through a handle, resolving the file path once instead of on every call
+        writer.openStream("large.properties", ConfigStream.Order.SORTED);
+        ConfigFile large = writer.file("large.properties");
+        for (int i = 0; i < 1000000; i++) {
+            large.add("field" + i, "value" + i);
+        }
+        large.close();
+
+        // write straight to HDFS, or any Hadoop file system, instead of a local directory
+        ConfigWriter remote = ConfigWriter.newInstance();
+        remote.setBaseDir("hdfs://localhost:9000/config");
+        remote.setReplication((short) 3);
+        remote.open("sample.properties");
+        remote.addSingleConfig("sample.properties", "field1", "value1");
+        remote.write("sample.properties");
+        remote.close("sample.properties");
+
     }
 }
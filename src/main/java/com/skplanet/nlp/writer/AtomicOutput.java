@@ -0,0 +1,189 @@
+package com.skplanet.nlp.writer;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Output to a temporary file, renamed over the target on {@link #commit()}<br>
+ * <br>
+ * the target is never truncated nor partly written : readers see the previous version
+ * until the new one is complete, flushed and synced to disk, then the new one as a whole.
+ * the temporary file is created in the directory of the target, so the rename is atomic.
+ * with backups, previous versions are kept as "name.1" (latest) to "name.N".<br>
+ */
+final class AtomicOutput implements TargetOutput {
+
+    private final File target;
+    private final File temp;
+    private final FileChannel channel;
+    private final int backups;
+
+    // buffered writer over the channel, created on first use
+    private Writer writer = null;
+
+    private boolean done = false;
+
+    // flushed, synced and closed, not renamed yet
+    private boolean synced = false;
+
+    /**
+     * Create the temporary file next to the target
+     * @param target file to replace
+     * @param backups number of previous versions to keep
+     */
+    AtomicOutput(File target, int backups) throws IOException {
+        this.target = target.getAbsoluteFile();
+        this.backups = backups;
+        this.temp = File.createTempFile("." + this.target.getName() + ".", ".tmp", this.target.getParentFile());
+        this.channel = FileChannel.open(this.temp.toPath(), StandardOpenOption.WRITE);
+    }
+
+    File getTarget() {
+        return this.target;
+    }
+
+    FileChannel channel() {
+        return this.channel;
+    }
+
+    @Override
+    public synchronized Writer writer() {
+        if (this.writer == null) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(this.channel),
+                    CHARSET));
+        }
+        return this.writer;
+    }
+
+    /**
+     * Flush and sync the temporary file, the target is not replaced yet
+     */
+    @Override
+    public synchronized void sync() throws IOException {
+        if (this.done || this.synced) {
+            return;
+        }
+        boolean ok = false;
+        try {
+            if (this.writer != null) {
+                this.writer.flush();
+            }
+            this.channel.force(true);
+            this.channel.close();
+            ok = true;
+        } finally {
+            if (!ok) {
+                abort();
+            }
+        }
+        this.synced = true;
+    }
+
+    /**
+     * Flush and sync the temporary file, keep a backup of the target if enabled, and rename over the target.<br>
+     * on failure the target is left as it was and the temporary file is removed.
+     */
+    @Override
+    public synchronized void commit() throws IOException {
+        if (this.done) {
+            return;
+        }
+        sync();
+        this.done = true;
+        try {
+            if (this.backups > 0 && this.target.exists()) {
+                rotate();
+            }
+            Files.move(this.temp.toPath(), this.target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory(this.target.getParentFile());
+        } finally {
+            this.temp.delete();
+        }
+    }
+
+    @Override
+    public synchronized void abort() {
+        if (this.done) {
+            return;
+        }
+        this.done = true;
+        try {
+            this.channel.close();
+        } catch (IOException e) {
+            // discarded anyway
+        }
+        this.temp.delete();
+    }
+
+    @Override
+    public long targetLength() {
+        return this.target.isFile() ? this.target.length() : -1;
+    }
+
+    @Override
+    public InputStream openTarget() throws IOException {
+        return new FileInputStream(this.target);
+    }
+
+    /**
+     * Shift the backups and link the current target as "name.1", the target itself stays in place
+     */
+    private void rotate() throws IOException {
+        File oldest = backup(this.backups);
+        if (oldest.exists() && !oldest.delete()) {
+            System.err.println("[WARNING] can't delete old backup : " + oldest);
+        }
+        for (int i = this.backups - 1; i >= 1; i--) {
+            File from = backup(i);
+            if (from.exists()) {
+                Files.move(from.toPath(), backup(i + 1).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        File latest = backup(1);
+        try {
+            Files.createLink(latest.toPath(), this.target.toPath());
+        } catch (IOException e) {
+            // no hard links on this file system
+            Files.copy(this.target.toPath(), latest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (UnsupportedOperationException e) {
+            Files.copy(this.target.toPath(), latest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private File backup(int i) {
+        return new File(this.target.getPath() + "." + i);
+    }
+
+    /**
+     * Sync the directory entry of the rename, where the platform allows it
+     */
+    private static void syncDirectory(File dir) {
+        FileChannel ch = null;
+        try {
+            ch = FileChannel.open(dir.toPath(), StandardOpenOption.READ);
+            ch.force(true);
+        } catch (IOException e) {
+            // not supported on this platform
+        } finally {
+            if (ch != null) {
+                try {
+                    ch.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+}
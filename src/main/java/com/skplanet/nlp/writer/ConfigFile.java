@@ -0,0 +1,112 @@
+package com.skplanet.nlp.writer;
+
+import java.io.IOException;
+
+/**
+ * Handle for one configuration file of a {@link ConfigWriter}<br>
+ * <br>
+ * Created once through {@link ConfigWriter#file(String)}, with the canonical path resolved at that time,
+ * then used for every item of the file : no path resolution and no file system call per item.
+ * the handle follows the file through {@link ConfigWriter#open(String)}, {@link #clear()} and reopening,
+ * as long as the base directory is the same.<br>
+ * <br>
+ * thread-safe, like {@link ConfigWriter}.<br>
+ */
+public final class ConfigFile {
+
+    private final ConfigWriter writer;
+
+    /**
+     * canonical path of the configuration file
+     */
+    private final String path;
+
+    ConfigFile(ConfigWriter writer, String path) {
+        this.writer = writer;
+        this.path = path;
+    }
+
+    /**
+     * Get the canonical path of the configuration file
+     * @return canonical path
+     */
+    public String getPath() {
+        return this.path;
+    }
+
+    /**
+     * Set the header, see {@link ConfigWriter#addHeader(String, String)}
+     * @param header contents of header
+     */
+    public void addHeader(String header) {
+        this.writer.addHeaderAt(this.path, header);
+    }
+
+    /**
+     * Add a configuration item, see {@link ConfigWriter#addSingleConfig(String, String, String)}
+     * @param field field
+     * @param value value
+     */
+    public void add(String field, String value) {
+        try {
+            this.writer.addAt(this.path, field, value);
+        } catch (IOException e) {
+            System.err.println("[WARNING] can't write the property file: " + this.path);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Add multiple configuration items, see {@link ConfigWriter#addMultipleConfig(String, String[], String[])}
+     * @param fields fields
+     * @param values values
+     */
+    public void addAll(String[] fields, String[] values) {
+        try {
+            this.writer.addAllAt(this.path, fields, values);
+        } catch (IOException e) {
+            System.err.println("[WARNING] can't write the property file: " + this.path);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Write the items, see {@link ConfigWriter#write(String)}
+     */
+    public void write() {
+        try {
+            if (!this.writer.writeAt(this.path)) {
+                System.err.println("[ERROR] property file is not opened: " + this.path);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Clear all the properties, see {@link ConfigWriter#clear(String)}
+     */
+    public void clear() {
+        this.writer.clearAt(this.path);
+    }
+
+    /**
+     * Close the file, see {@link ConfigWriter#close(String)}
+     * @return false if the file couldn't be replaced, the previous version is kept
+     */
+    public boolean close() {
+        try {
+            this.writer.closeAt(this.path);
+            return true;
+        } catch (IOException e) {
+            System.err.println("[ERROR] can't replace property file, previous version kept: " + this.path);
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.path;
+    }
+}
@@ -0,0 +1,412 @@
+package com.skplanet.nlp.writer;
+
+import com.skplanet.nlp.config.ConfigItem;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Streaming properties file writer, for outputs too large to build in memory<br>
+ * <br>
+ * working flow.<br>
+ *
+ * 1. Create {@link ConfigStream} for the target file, directly or with {@link ConfigWriter#openStream(String, Order)} <br>
+ * 2. [optional] {@link #addHeader(String)} before the first entry <br>
+ * 3. {@link #add(String, String)} entries, as many as needed <br>
+ * 4. {@link #close()} <br>
+ * <br>
+ * keys and values are escaped as {@link java.util.Properties#store(java.io.OutputStream, String)} does,
+ * and written through a fixed size buffer to a {@link FileChannel}.
+ * the entries go to a temporary file, synced and renamed over the target on {@link #close()} :
+ * readers of the target never see a partial file.<br>
+ * {@link Order#INSERTION} writes every entry as it is added, duplicate keys included (the last one wins on load).
+ * {@link Order#SORTED} keeps at most {@link #setRunSize(int)} entries in memory, spills sorted runs to temporary
+ * files next to the target, and merges them on {@link #close()}, keeping the last value of duplicate keys.<br>
+ * thread-safe, entries of concurrent {@link #add(String, String)} calls are written one at a time.<br>
+ */
+public class ConfigStream implements Closeable {
+
+    /**
+     * Order of the entries in the output
+     */
+    public enum Order {
+        /**
+         * order of {@link #add(String, String)} calls
+         */
+        INSERTION,
+        /**
+         * sorted by key
+         */
+        SORTED
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * entry of a sorted run, sequence numbers keep the last value of a duplicate key
+     */
+    private static final class Entry {
+        final String key;
+        final String value;
+        final long seq;
+
+        Entry(String key, String value, long seq) {
+            this.key = key;
+            this.value = value;
+            this.seq = seq;
+        }
+    }
+
+    private static final Comparator<Entry> ENTRY_ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            int c = a.key.compareTo(b.key);
+            return c != 0 ? c : (a.seq < b.seq ? -1 : (a.seq == b.seq ? 0 : 1));
+        }
+    };
+
+    private final File target;
+    private final Order order;
+    private final AtomicOutput output;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final StringBuilder line;
+
+    // header, written before the first entry
+    private String header = null;
+    private boolean started = false;
+
+    // sorted mode : pending entries and spilled runs
+    private int runSize = 100000;
+    private final List<Entry> pending;
+    private final List<File> runs;
+    private long seq = 0;
+
+    private long count = 0;
+    private boolean closed = false;
+
+    /**
+     * Constructor, the target file is replaced on {@link #close()}
+     * @param target properties file
+     * @param order order of the entries
+     */
+    public ConfigStream(File target, Order order) throws IOException {
+        this(target, order, 0);
+    }
+
+    /**
+     * Constructor, the target file is replaced on {@link #close()}
+     * @param target properties file
+     * @param order order of the entries
+     * @param backups number of previous versions of the target to keep, as "name.1" (latest) to "name.N"
+     */
+    public ConfigStream(File target, Order order, int backups) throws IOException {
+        this.target = target;
+        this.order = order;
+        this.output = new AtomicOutput(target, backups);
+        this.channel = this.output.channel();
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        this.line = new StringBuilder(256);
+        this.pending = new ArrayList<Entry>();
+        this.runs = new ArrayList<File>();
+    }
+
+    /**
+     * Set the number of entries kept in memory by {@link Order#SORTED} before a run is spilled
+     * @param entries number of entries
+     */
+    public void setRunSize(int entries) {
+        this.runSize = Math.max(1, entries);
+    }
+
+    /**
+     * Set the header, written as comment lines before the first entry
+     * @param header contents of header, lines separated by "\n"
+     */
+    public synchronized void addHeader(String header) {
+        if (this.started) {
+            System.err.println("[WARNING] header ignored, entries already written : " + this.target);
+            return;
+        }
+        this.header = header;
+    }
+
+    /**
+     * Add an entry
+     * @param field field
+     * @param value value
+     */
+    public synchronized void add(String field, String value) throws IOException {
+        if (this.closed) {
+            throw new IOException("stream is closed : " + this.target);
+        }
+        this.count++;
+        if (this.order == Order.INSERTION) {
+            writeEntry(field, value);
+            return;
+        }
+        this.pending.add(new Entry(field, value, this.seq++));
+        if (this.pending.size() >= this.runSize) {
+            spill();
+        }
+    }
+
+    /**
+     * Get the number of entries added so far
+     * @return number of entries
+     */
+    public synchronized long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Get the order of the entries
+     * @return order
+     */
+    public Order getOrder() {
+        return this.order;
+    }
+
+    /**
+     * Get the target file
+     * @return properties file
+     */
+    public File getTarget() {
+        return this.target;
+    }
+
+    /**
+     * Write the pending entries, sync the file and rename it over the target
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        boolean complete = false;
+        try {
+            if (this.order == Order.SORTED) {
+                if (this.runs.isEmpty()) {
+                    Collections.sort(this.pending, ENTRY_ORDER);
+                    writeSorted(this.pending);
+                } else {
+                    spill();
+                    merge();
+                }
+            }
+            writeHeader();
+            flush();
+            complete = true;
+        } finally {
+            this.pending.clear();
+            for (File run : this.runs) {
+                run.delete();
+            }
+            if (complete) {
+                this.output.commit();
+            } else {
+                this.output.abort();
+            }
+        }
+    }
+
+    /**
+     * Discard the entries, the target is left as it was
+     */
+    public synchronized void abort() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        this.pending.clear();
+        for (File run : this.runs) {
+            run.delete();
+        }
+        this.output.abort();
+    }
+
+    private void writeHeader() throws IOException {
+        if (this.started) {
+            return;
+        }
+        this.started = true;
+        if (this.header != null) {
+            for (String h : this.header.split("\n")) {
+                byte[] bytes = (ConfigItem.HEADER_TAG + h + "\n").getBytes(TargetOutput.CHARSET);
+                for (byte b : bytes) {
+                    if (!this.buffer.hasRemaining()) {
+                        flush();
+                    }
+                    this.buffer.put(b);
+                }
+            }
+        }
+    }
+
+    private void writeEntry(String field, String value) throws IOException {
+        writeHeader();
+        this.line.setLength(0);
+        writeLine(ConfigItem.format(this.line, field, value));
+    }
+
+    /**
+     * Write an escaped line, made of ASCII characters only
+     */
+    private void writeLine(CharSequence s) throws IOException {
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            if (!this.buffer.hasRemaining()) {
+                flush();
+            }
+            this.buffer.put((byte) s.charAt(i));
+        }
+    }
+
+    private void flush() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+
+    /**
+     * Write sorted entries, keeping the last value of duplicate keys
+     */
+    private void writeSorted(List<Entry> entries) throws IOException {
+        for (int i = 0; i < entries.size(); i++) {
+            Entry e = entries.get(i);
+            if (i + 1 < entries.size() && entries.get(i + 1).key.equals(e.key)) {
+                continue;
+            }
+            writeEntry(e.key, e.value);
+        }
+    }
+
+    /**
+     * Sort the pending entries and write them to a temporary run file
+     */
+    private void spill() throws IOException {
+        if (this.pending.isEmpty()) {
+            return;
+        }
+        Collections.sort(this.pending, ENTRY_ORDER);
+        File dir = this.target.getAbsoluteFile().getParentFile();
+        File run = File.createTempFile("." + this.target.getName(), ".run", dir);
+        this.runs.add(run);
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), BUFFER_SIZE));
+        try {
+            for (Entry e : this.pending) {
+                writeString(out, e.key);
+                writeString(out, e.value);
+                out.writeLong(e.seq);
+            }
+        } finally {
+            out.close();
+        }
+        this.pending.clear();
+    }
+
+    /**
+     * Merge the sorted runs into the target
+     */
+    private void merge() throws IOException {
+        PriorityQueue<Run> queue = new PriorityQueue<Run>(this.runs.size(), new Comparator<Run>() {
+            @Override
+            public int compare(Run a, Run b) {
+                return ENTRY_ORDER.compare(a.head, b.head);
+            }
+        });
+        List<Run> open = new ArrayList<Run>(this.runs.size());
+        try {
+            for (File file : this.runs) {
+                Run run = new Run(file);
+                open.add(run);
+                if (run.next()) {
+                    queue.add(run);
+                }
+            }
+
+            // equal keys come out in sequence order, the last one is written
+            Entry last = null;
+            while (!queue.isEmpty()) {
+                Run run = queue.poll();
+                Entry e = run.head;
+                if (last != null && !last.key.equals(e.key)) {
+                    writeEntry(last.key, last.value);
+                }
+                last = e;
+                if (run.next()) {
+                    queue.add(run);
+                }
+            }
+            if (last != null) {
+                writeEntry(last.key, last.value);
+            }
+        } finally {
+            for (Run run : open) {
+                run.close();
+            }
+        }
+    }
+
+    /**
+     * Reader of one spilled run
+     */
+    private static final class Run {
+        private final DataInputStream in;
+        Entry head;
+
+        Run(File file) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+        }
+
+        boolean next() throws IOException {
+            String key;
+            try {
+                key = readString(this.in);
+            } catch (EOFException e) {
+                this.head = null;
+                return false;
+            }
+            String value = readString(this.in);
+            this.head = new Entry(key, value, this.in.readLong());
+            return true;
+        }
+
+        void close() throws IOException {
+            this.in.close();
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
@@ -2,16 +2,43 @@ package com.skplanet.nlp.writer;
 
 
 import com.skplanet.nlp.config.ConfigItem;
+import com.skplanet.nlp.config.ConfigSnapshot;
+import com.skplanet.nlp.config.HdfsFileSystemPool;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Set;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Simple Configuration Writer<br>
+ * <br>
+ * thread-safe : any number of threads may add items to the same or different files at once.
+ * items are buffered per file in lock stripes (see {@link ConfigItem}), and merged when the file is written.
+ * call {@link #write(String)} once the producers are done, items added meanwhile may be left out.
+ * with several producers per file, open it with {@link ConfigStream.Order#SORTED} for an output independent of thread scheduling.
+ * files opened with {@link #openStream(String, ConfigStream.Order)} serialize the producers on the file channel.<br>
+ * <br>
+ * the base directory may be a Hadoop {@link FileSystem} URI, e.g. "hdfs://namenode:8020/config" :
+ * files are then written straight to that file system, see {@link #setReplication(short)} and {@link #setBlockSize(long)}.
+ * streaming mode and snapshots need a local base directory.<br>
  *
  * <br>Created by Donghun Shin<br>
  * Contact: donghun.shin@sk.com, sindongboy@gmail.com<br>
@@ -19,20 +46,44 @@ import java.util.Set;
  */
 public class ConfigWriter implements ConfigWritable{
 
-    // Instance
-    private static ConfigWriter instance = null;
+    // Instance, created by the class loader on first access
+    private static final class Holder {
+        static final ConfigWriter INSTANCE = new ConfigWriter();
+    }
 
-    // Control Configuration files
-    private HashMap<String, BufferedWriter> configList = null;
+    // Control Configuration files, written to a temporary file until closed
+    private ConcurrentHashMap<String, TargetOutput> configList = null;
 
     // Control Configuration contents
-    private HashMap<String, ConfigItem> configItem = null;
+    private ConcurrentHashMap<String, ConfigItem> configItem = null;
 
     // Control Configuration headers
-    private HashMap<String, String> header = null;
+    private ConcurrentHashMap<String, String> header = null;
+
+    // Configuration files opened in streaming mode
+    private ConcurrentHashMap<String, ConfigStream> streams = null;
 
     // classpath for saving configuration files
-    private File BASE_DIR = null;
+    private volatile File BASE_DIR = null;
+
+    // base directory on a Hadoop file system, null for a local base directory
+    private volatile Path remoteBase = null;
+
+    // file systems of remote base directories, created on first use
+    private volatile HdfsFileSystemPool fsPool = null;
+
+    // replication and block size of remote files, 0 for the file system default
+    private volatile short replication = 0;
+    private volatile long blockSize = 0;
+
+    // number of previous versions kept per configuration file
+    private volatile int backups = 0;
+
+    // canonical paths by configuration file name, for the current base directory
+    private volatile ConcurrentHashMap<String, String> paths = null;
+
+    // digest of the contents last written to each target by writeAll, dropped when the target is written otherwise
+    private ConcurrentHashMap<String, byte[]> written = null;
 
 
     /**
@@ -41,21 +92,135 @@ public class ConfigWriter implements ConfigWritable{
      * @return an instance of {@link ConfigWriter}
      */
     public static ConfigWriter getInstance() {
-        if (instance == null) {
-            synchronized (ConfigWriter.class) {
-                instance = new ConfigWriter();
-            }
-        }
-        return instance;
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Create a new, isolated {@link ConfigWriter}, not shared with {@link #getInstance()}
+     *
+     * @return new instance of {@link ConfigWriter}
+     */
+    public static ConfigWriter newInstance() {
+        return new ConfigWriter();
     }
 
     /**
      * Constructor : just prevent any other classes from instantiating
      */
     private ConfigWriter() {
-        this.configList = new HashMap<String, BufferedWriter>();
-        this.configItem = new HashMap<String, ConfigItem>();
-        this.header = new HashMap<String, String>();
+        this.configList = new ConcurrentHashMap<String, TargetOutput>();
+        this.configItem = new ConcurrentHashMap<String, ConfigItem>();
+        this.header = new ConcurrentHashMap<String, String>();
+        this.streams = new ConcurrentHashMap<String, ConfigStream>();
+        this.paths = new ConcurrentHashMap<String, String>();
+        this.written = new ConcurrentHashMap<String, byte[]>();
+    }
+
+    /**
+     * Get the canonical path of the given configuration file, resolved once per base directory
+     * @param fileName configuration file
+     * @return canonical path
+     */
+    private String path(String fileName) throws IOException {
+        ConcurrentHashMap<String, String> cache = this.paths;
+        String path = cache.get(fileName);
+        if (path == null) {
+            Path remote = this.remoteBase;
+            if (remote != null) {
+                path = new Path(remote, fileName).toString();
+            } else {
+                path = new File(BASE_DIR + "/" + fileName).getCanonicalPath();
+            }
+            cache.put(fileName, path);
+        }
+        return path;
+    }
+
+    /**
+     * Check whether the given directory or path is a Hadoop file system URI, e.g. "hdfs://namenode/config"
+     */
+    private static boolean isRemote(String path) {
+        int scheme = path.indexOf("://");
+        return scheme > 0 && path.lastIndexOf('/', scheme) < 0 && path.lastIndexOf('\\', scheme) < 0;
+    }
+
+    /**
+     * Get the pool of Hadoop file systems used for remote base directories, creating it on first use
+     * @return file system pool
+     */
+    public HdfsFileSystemPool getFileSystemPool() {
+        HdfsFileSystemPool pool = this.fsPool;
+        if (pool == null) {
+            synchronized (this) {
+                pool = this.fsPool;
+                if (pool == null) {
+                    pool = new HdfsFileSystemPool();
+                    this.fsPool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Set the pool of Hadoop file systems used for remote base directories,
+     * e.g. {@link com.skplanet.nlp.config.Configuration#getFileSystemPool()} to share connections with loading.
+     * the pool is not closed by this writer.
+     * @param pool file system pool
+     */
+    public void setFileSystemPool(HdfsFileSystemPool pool) {
+        this.fsPool = pool;
+    }
+
+    /**
+     * Set the replication of files written to a remote base directory
+     * @param replication replication, 0 (default) for the file system default
+     */
+    public void setReplication(short replication) {
+        this.replication = (short) Math.max(0, replication);
+    }
+
+    /**
+     * Set the block size of files written to a remote base directory
+     * @param blockSize block size in bytes, 0 (default) for the file system default
+     */
+    public void setBlockSize(long blockSize) {
+        this.blockSize = Math.max(0, blockSize);
+    }
+
+    /**
+     * Get the items of the given file, creating them on first use
+     * @param path canonical path of the configuration file
+     * @return items
+     */
+    private ConfigItem item(String path) {
+        ConfigItem cItem = this.configItem.get(path);
+        if (cItem == null) {
+            ConfigItem created = new ConfigItem();
+            cItem = this.configItem.putIfAbsent(path, created);
+            if (cItem == null) {
+                cItem = created;
+            }
+        }
+        return cItem;
+    }
+
+    /**
+     * Get a handle for the given configuration file.<br>
+     * the canonical path is resolved once, operations through the handle don't touch the file system
+     * until the file is written. open the file, with {@link #open(String)} or {@link #openStream(String, ConfigStream.Order)},
+     * before adding items.
+     * @param fileName configuration file
+     * @return handle, or null if the path can't be resolved
+     */
+    public ConfigFile file(String fileName) {
+        try {
+            return new ConfigFile(this, path(fileName));
+        } catch (IOException e) {
+            System.err.println("[ERROR] can't resolve property file (wrong path): " + fileName);
+            e.printStackTrace();
+            return null;
+        }
     }
 
     /**
@@ -64,60 +229,107 @@ public class ConfigWriter implements ConfigWritable{
      * @param header contents of header
      */
     public void addHeader(String fileName, String header) {
-
-        File dFile = new File(BASE_DIR + "/" + fileName);
         try {
-            if (this.header.containsKey(dFile.getCanonicalPath())) {
-                this.header.remove(dFile.getCanonicalPath());
-                this.header.put(dFile.getCanonicalPath(), header);
-            } else {
-                this.header.put(dFile.getCanonicalPath(), header);
-            }
+            addHeaderAt(path(fileName), header);
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    void addHeaderAt(String path, String header) {
+        ConfigStream stream = this.streams.get(path);
+        if (stream != null) {
+            stream.addHeader(header);
+            return;
+        }
+        this.header.put(path, header);
+    }
+
     /**
      * Clear all the properties for given configuration file
      * @param fileName configuration file
      */
     public void clear(String fileName) {
-        File dFile = new File(BASE_DIR + "/" + fileName);
         try {
-            if (this.configList.containsKey(dFile.getCanonicalPath())) {
-                this.close(fileName);
-                this.open(fileName);
-            }
+            clearAt(path(fileName));
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    void clearAt(String path) {
+        ConfigStream stream = this.streams.remove(path);
+        if (stream != null) {
+            stream.abort();
+            this.openStreamAt(path, stream.getOrder());
+        }
+        TargetOutput output = this.configList.remove(path);
+        if (output != null) {
+            output.abort();
+            // reopen in the order the file was opened with
+            this.openAt(path, item(path).isSorted() ? ConfigStream.Order.SORTED : ConfigStream.Order.INSERTION);
+        }
+    }
+
     @Override
     public void write(String fileName) {
-        File dFile = new File(BASE_DIR + "/" + fileName);
-        BufferedWriter writer;
-        String []lines;
         try {
-            writer = this.configList.get(dFile.getCanonicalPath());
-            ConfigItem cItem = this.configItem.get(dFile.getCanonicalPath());
-            if (this.header.containsKey(dFile.getCanonicalPath())) {
-                lines = this.header.get(dFile.getCanonicalPath()).split("\n");
-                for (String line : lines) {
-                    writer.write(ConfigItem.HEADER_TAG + line + "\n");
-                }
+            if (!writeAt(path(fileName))) {
+                System.err.println("[ERROR] property file is not opened: " + fileName);
             }
-            writer.write(cItem.toString());
-
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * @return false if the file is not opened
+     */
+    boolean writeAt(String path) throws IOException {
+        if (this.streams.containsKey(path)) {
+            // entries are written as they are added
+            return true;
+        }
+        TargetOutput output = this.configList.get(path);
+        if (output == null) {
+            return false;
+        }
+        synchronized (output) {
+            writeContent(path, output.writer());
+        }
+        return true;
+    }
+
+    /**
+     * Write header and items of the given file
+     */
+    private void writeContent(String path, Writer writer) throws IOException {
+        String head = this.header.get(path);
+        if (head != null) {
+            String[] lines = head.split("\n");
+            for (String line : lines) {
+                writer.write(ConfigItem.HEADER_TAG + line + "\n");
+            }
+        }
+        item(path).writeTo(writer);
+    }
+
+    /**
+     * Set directory for saving configuration files
+     * @param dir local directory, or Hadoop file system URI such as "hdfs://namenode:8020/config"
+     */
     @Override
     public void setBaseDir(String dir) {
+        if (isRemote(dir)) {
+            this.remoteBase = new Path(dir);
+            this.BASE_DIR = null;
+            this.paths = new ConcurrentHashMap<String, String>();
+            return;
+        }
+        this.remoteBase = null;
         this.BASE_DIR = new File(dir);
+        // names resolve against the new directory from now on
+        this.paths = new ConcurrentHashMap<String, String>();
         if (!BASE_DIR.exists()) {
             System.err.println("[ERROR] Directory doesn't exist: " + dir);
         }
@@ -127,19 +339,93 @@ public class ConfigWriter implements ConfigWritable{
         }
     }
 
+    /**
+     * Keep previous versions of the configuration files, as "name.1" (latest) to "name.N"
+     * @param count number of previous versions to keep, 0 (default) to keep none
+     */
+    public void setBackupCount(int count) {
+        this.backups = Math.max(0, count);
+    }
+
+    /**
+     * Open the given configuration file for writing.<br>
+     * contents are written to a temporary file next to it, the file itself is replaced on {@link #close(String)},
+     * after the temporary file is synced to disk : readers see the previous version or the new one, never a part.
+     * @param fileName configuration file
+     * @return {@link String} : the canonical path for the configuration file
+     */
     @Override
     public String open(String fileName) {
-        if (BASE_DIR == null) {
+        return open(fileName, ConfigStream.Order.INSERTION);
+    }
+
+    /**
+     * Open the given configuration file for writing, see {@link #open(String)}
+     * @param fileName configuration file
+     * @param order order of the items in the file
+     * @return {@link String} : the canonical path for the configuration file
+     */
+    public String open(String fileName, ConfigStream.Order order) {
+        if (BASE_DIR == null && this.remoteBase == null) {
             System.err.println("[ERROR] Base Directory must be set before create a property file");
             return null;
         }
 
-        File propFile = new File(BASE_DIR + "/" + fileName);
+        try {
+            return openAt(path(fileName), order);
+        } catch (IOException e) {
+            System.err.println("[ERROR] can't create property file (wrong path): " + fileName);
+            e.printStackTrace();
+        }
 
+        return null;
+    }
+
+    private String openAt(String path, ConfigStream.Order order) {
         try {
-            BufferedWriter writer = new BufferedWriter(new FileWriter(propFile));
-            this.configList.put(propFile.getCanonicalPath(), writer);
-            return propFile.getCanonicalPath();
+            TargetOutput output;
+            if (isRemote(path)) {
+                Path target = new Path(path);
+                output = new HadoopOutput(getFileSystemPool().get(target.toUri()), target, this.backups,
+                        this.replication, this.blockSize);
+            } else {
+                output = new AtomicOutput(new File(path), this.backups);
+            }
+            item(path).setSorted(order == ConfigStream.Order.SORTED);
+            TargetOutput previous = this.configList.put(path, output);
+            if (previous != null) {
+                previous.abort();
+            }
+            return path;
+        } catch (IOException e) {
+            System.err.println("[ERROR] can't create property file (wrong path): " + path);
+            e.printStackTrace();
+        }
+
+        return null;
+    }
+
+    /**
+     * Open the given configuration file in streaming mode.<br>
+     * entries added with {@link #addSingleConfig(String, String, String)} and
+     * {@link #addMultipleConfig(String, String[], String[])} go straight to the file through {@link ConfigStream},
+     * instead of being kept until {@link #write(String)}. {@link #close(String)} completes the file.
+     * @param fileName configuration file
+     * @param order order of the entries in the file
+     * @return {@link String} : the canonical path for the configuration file
+     */
+    public String openStream(String fileName, ConfigStream.Order order) {
+        if (this.remoteBase != null) {
+            System.err.println("[ERROR] streaming mode needs a local base directory: " + fileName);
+            return null;
+        }
+        if (BASE_DIR == null) {
+            System.err.println("[ERROR] Base Directory must be set before create a property file");
+            return null;
+        }
+
+        try {
+            return openStreamAt(path(fileName), order);
         } catch (IOException e) {
             System.err.println("[ERROR] can't create property file (wrong path): " + fileName);
             e.printStackTrace();
@@ -148,50 +434,290 @@ public class ConfigWriter implements ConfigWritable{
         return null;
     }
 
+    private String openStreamAt(String path, ConfigStream.Order order) {
+        try {
+            this.written.remove(path);
+            ConfigStream stream = new ConfigStream(new File(path), order, this.backups);
+            ConfigStream previous = this.streams.put(path, stream);
+            if (previous != null) {
+                previous.abort();
+            }
+            return path;
+        } catch (IOException e) {
+            System.err.println("[ERROR] can't create property file (wrong path): " + path);
+            e.printStackTrace();
+        }
+
+        return null;
+    }
+
     @Override
     public String close(String fileName) {
-        File dFile = new File(BASE_DIR + "/" + fileName);
         try {
-            if (this.configList.containsKey(dFile.getCanonicalPath())) {
-                this.configList.get(dFile.getCanonicalPath()).close();
-                this.configList.remove(dFile);
-            }
-            return dFile.getCanonicalPath();
+            return closeAt(path(fileName));
         } catch (IOException e) {
-            // file not opened
+            System.err.println("[ERROR] can't replace property file, previous version kept: " + fileName);
+            e.printStackTrace();
             return null;
         }
     }
 
+    String closeAt(String path) throws IOException {
+        ConfigStream stream = this.streams.remove(path);
+        if (stream != null) {
+            stream.close();
+        }
+        this.written.remove(path);
+        TargetOutput output = this.configList.remove(path);
+        if (output != null) {
+            output.commit();
+        }
+        return path;
+    }
+
     @Override
     public String delete(String fileName) {
-        File dFile = new File(BASE_DIR + "/" + fileName);
+        String path;
         try {
-            if (this.configList.containsKey(dFile.getCanonicalPath())) {
-                this.configList.get(dFile.getCanonicalPath()).close();
-                this.configList.remove(dFile);
-                dFile.delete();
-            }
-            return dFile.getCanonicalPath();
+            path = path(fileName);
         } catch (IOException e) {
             // file not opened
             return null;
         }
+        this.written.remove(path);
+        ConfigStream stream = this.streams.remove(path);
+        if (stream != null) {
+            stream.abort();
+            new File(path).delete();
+        }
+        TargetOutput output = this.configList.remove(path);
+        if (output != null) {
+            output.abort();
+            if (isRemote(path)) {
+                try {
+                    Path target = new Path(path);
+                    getFileSystemPool().get(target.toUri()).delete(target, false);
+                } catch (IOException e) {
+                    System.err.println("[WARNING] can't delete the property file: " + path);
+                    e.printStackTrace();
+                }
+            } else {
+                new File(path).delete();
+            }
+        }
+        return path;
     }
 
     @Override
     public void closeAll() {
-        Set<String> keys = this.configList.keySet();
-
-        for (String key : keys) {
+        for (Map.Entry<String, TargetOutput> entry : this.configList.entrySet()) {
+            this.written.remove(entry.getKey());
             try {
-                this.configList.get(key).close();
+                entry.getValue().commit();
             } catch (IOException e) {
+                System.err.println("[ERROR] can't replace property file, previous version kept: " + entry.getKey());
                 e.printStackTrace();
             }
         }
 
         this.configList.clear();
+
+        for (ConfigStream stream : this.streams.values()) {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        this.streams.clear();
+    }
+
+    /**
+     * Write and close all the files opened with {@link #open(String)}, see {@link #writeAll(int, boolean)}
+     * @return result per file
+     */
+    public List<WriteResult> writeAll() {
+        return writeAll(Math.min(8, Runtime.getRuntime().availableProcessors() * 2), false);
+    }
+
+    /**
+     * Write and close all the files opened with {@link #open(String)}, concurrently.<br>
+     * files are serialized and written on a pool of at most {@code parallelism} threads.
+     * a file whose new contents are the same as the current file is left untouched :
+     * no write, no backup and no new modification time, so readers have nothing to reload.
+     * the contents are compared with the digest of the last write, a target is read back only the first time.
+     * with {@code groupSync}, every file is written and synced before any of them replaces its target,
+     * so the whole set is durable before the first one is visible.
+     * files opened in streaming mode are left open.
+     * call this instead of {@link #write(String)} and {@link #close(String)} for the files.
+     * @param parallelism maximum number of files written at the same time
+     * @param groupSync replace the targets only once all the files are synced
+     * @return result per file
+     */
+    public List<WriteResult> writeAll(int parallelism, final boolean groupSync) {
+        List<WriteResult> results = new ArrayList<WriteResult>();
+        final List<String> paths = new ArrayList<String>();
+        final List<TargetOutput> outputs = new ArrayList<TargetOutput>();
+        for (Map.Entry<String, TargetOutput> entry : this.configList.entrySet()) {
+            // taken out first, so that a concurrent close can't commit it too
+            if (this.configList.remove(entry.getKey(), entry.getValue())) {
+                paths.add(entry.getKey());
+                outputs.add(entry.getValue());
+            }
+        }
+        if (paths.isEmpty()) {
+            return results;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, paths.size())),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "config-writer");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+
+        try {
+            List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>(paths.size());
+            final byte[][] digests = new byte[paths.size()][];
+            for (int i = 0; i < paths.size(); i++) {
+                final int index = i;
+                final String path = paths.get(i);
+                final TargetOutput output = outputs.get(i);
+                futures.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        digests[index] = writeOutput(path, output, !groupSync);
+                        return digests[index] != null;
+                    }
+                }));
+            }
+            boolean[] changed = new boolean[paths.size()];
+            Throwable[] errors = new Throwable[paths.size()];
+            collect(futures, paths, outputs, changed, errors);
+
+            if (groupSync) {
+                futures.clear();
+                for (int i = 0; i < paths.size(); i++) {
+                    final String path = paths.get(i);
+                    final TargetOutput output = outputs.get(i);
+                    final byte[] digest = digests[i];
+                    if (errors[i] != null || !changed[i]) {
+                        futures.add(null);
+                        continue;
+                    }
+                    futures.add(executor.submit(new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws Exception {
+                            output.commit();
+                            written.put(path, digest);
+                            return Boolean.TRUE;
+                        }
+                    }));
+                }
+                collect(futures, paths, outputs, changed, errors);
+            }
+
+            for (int i = 0; i < paths.size(); i++) {
+                results.add(new WriteResult(paths.get(i), changed[i], errors[i]));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    /**
+     * Wait for the tasks of {@link #writeAll(int, boolean)}, discarding the outputs that failed
+     */
+    private static void collect(List<Future<Boolean>> futures, List<String> paths, List<TargetOutput> outputs,
+                                boolean[] changed, Throwable[] errors) {
+        for (int i = 0; i < futures.size(); i++) {
+            Future<Boolean> future = futures.get(i);
+            if (future == null) {
+                continue;
+            }
+            try {
+                changed[i] = future.get();
+            } catch (ExecutionException e) {
+                System.err.println("[ERROR] can't replace property file, previous version kept: " + paths.get(i));
+                errors[i] = e.getCause();
+                outputs.get(i).abort();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                errors[i] = e;
+                outputs.get(i).abort();
+            }
+        }
+    }
+
+    /**
+     * Serialize the given file and write it, unless the current file has the same contents
+     * @param commit replace the target, or only sync the output
+     * @return digest of the written contents, null if the file is unchanged
+     */
+    private byte[] writeOutput(String path, TargetOutput output, boolean commit) throws IOException {
+        StringWriter content = new StringWriter();
+        writeContent(path, content);
+        String text = content.toString();
+        byte[] bytes = text.getBytes(TargetOutput.CHARSET);
+        byte[] digest = digest().digest(bytes);
+
+        if (sameContent(path, output, bytes.length, digest)) {
+            output.abort();
+            this.written.put(path, digest);
+            return null;
+        }
+        synchronized (output) {
+            Writer writer = output.writer();
+            writer.write(text);
+        }
+        if (commit) {
+            output.commit();
+            this.written.put(path, digest);
+        } else {
+            output.sync();
+        }
+        return digest;
+    }
+
+    /**
+     * Compare the digest of the new contents with the one last written to the target,
+     * reading the target only if nothing was written to it yet.
+     * the length of the target is checked anyway, in case it was replaced by someone else.
+     */
+    private boolean sameContent(String path, TargetOutput output, int length, byte[] digest) throws IOException {
+        if (output.targetLength() != length) {
+            return false;
+        }
+        byte[] last = this.written.get(path);
+        if (last != null) {
+            return MessageDigest.isEqual(last, digest);
+        }
+
+        MessageDigest current = digest();
+        InputStream in = output.openTarget();
+        try {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                current.update(buffer, 0, n);
+            }
+        } finally {
+            in.close();
+        }
+        return MessageDigest.isEqual(current.digest(), digest);
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform supports MD5
+            throw new IllegalStateException(e);
+        }
     }
 
 
@@ -203,22 +729,23 @@ public class ConfigWriter implements ConfigWritable{
      */
     @Override
     public void addSingleConfig(String fileName, String field, String value) {
-        File dFile = new File(BASE_DIR + "/" + fileName);
-
         try {
-            if (this.configItem.containsKey(dFile.getCanonicalPath())) {
-                this.configItem.get(dFile.getCanonicalPath()).addOneItem(field, value);
-            } else {
-                ConfigItem cItem = new ConfigItem();
-                cItem.addOneItem(field, value);
-                this.configItem.put(dFile.getCanonicalPath(), cItem);
-            }
+            addAt(path(fileName), field, value);
         } catch (IOException e) {
             System.err.println("[WARNING] can't get the property file: " + fileName);
             e.printStackTrace();
         }
     }
 
+    void addAt(String path, String field, String value) throws IOException {
+        ConfigStream stream = this.streams.get(path);
+        if (stream != null) {
+            stream.add(field, value);
+        } else {
+            item(path).addOneItem(field, value);
+        }
+    }
+
     /**
      * Add multiple configuration items
      * @param fileName configuration file
@@ -227,26 +754,62 @@ public class ConfigWriter implements ConfigWritable{
      */
     @Override
     public void addMultipleConfig(String fileName, String[] fields, String[] values) {
-        File dFile = new File(BASE_DIR + "/" + fileName);
+        try {
+            addAllAt(path(fileName), fields, values);
+        } catch (IOException e) {
+            System.err.println("[WARNING] can't write the property file: " + fileName);
+            e.printStackTrace();
+        }
+    }
 
-        if (this.configItem.containsKey(dFile)) {
-            try {
-                this.configItem.get(dFile.getCanonicalPath()).addAllItem(fields, values);
-            } catch (IOException e) {
-                System.err.println("[WARNING] can't get the property file: " + fileName);
-                e.printStackTrace();
-            }
-        } else {
-            ConfigItem cItem = new ConfigItem();
-            cItem.addAllItem(fields, values);
-            try {
-                this.configItem.put(dFile.getCanonicalPath(), cItem);
-            } catch (IOException e) {
-                System.err.println("[WARNING] can't get the property file: " + fileName);
-                e.printStackTrace();
-            }
+    void addAllAt(String path, String[] fields, String[] values) throws IOException {
+        ConfigStream stream = this.streams.get(path);
+        if (stream == null) {
+            item(path).addAllItem(fields, values);
+            return;
+        }
+        if (fields.length != values.length) {
+            System.err.println("[ERROR] fields and values are not paired");
+            return;
+        }
+        for (int i = 0; i < fields.length; i++) {
+            stream.add(fields[i], values[i]);
         }
+    }
 
+    /**
+     * Compile every configuration with items into one {@link ConfigSnapshot}, next to the properties files.<br>
+     * each configuration is stored under its path relative to the base directory,
+     * the name used to load it from the classpath.
+     * @param snapshotName snapshot file name, relative to the base directory
+     * @return the canonical path of the snapshot, or null on failure
+     */
+    public String writeSnapshot(String snapshotName) {
+        if (this.remoteBase != null) {
+            System.err.println("[ERROR] snapshots need a local base directory: " + snapshotName);
+            return null;
+        }
+        if (BASE_DIR == null) {
+            System.err.println("[ERROR] Base Directory must be set before create a snapshot file");
+            return null;
+        }
+
+        File snapshot = new File(BASE_DIR + "/" + snapshotName);
+        try {
+            String base = BASE_DIR.getCanonicalPath() + File.separator;
+            TreeMap<String, Properties> files = new TreeMap<String, Properties>();
+            for (Map.Entry<String, ConfigItem> entry : this.configItem.entrySet()) {
+                String path = entry.getKey();
+                String name = path.startsWith(base) ? path.substring(base.length()) : path;
+                files.put(name.replace(File.separatorChar, '/'), entry.getValue().toProperties());
+            }
+            ConfigSnapshot.write(files, snapshot);
+            return snapshot.getCanonicalPath();
+        } catch (IOException e) {
+            System.err.println("[ERROR] can't create snapshot file: " + snapshotName);
+            e.printStackTrace();
+        }
+        return null;
     }
 
     /*
@@ -0,0 +1,186 @@
+package com.skplanet.nlp.writer;
+
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileContext;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Options;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.UnsupportedFileSystemException;
+
+import java.io.BufferedWriter;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Output to a temporary file on a Hadoop {@link FileSystem}, renamed over the target on {@link #commit()}<br>
+ * <br>
+ * same guarantees as {@link AtomicOutput} : the temporary file is created in the directory of the target,
+ * synced with {@link FSDataOutputStream#hsync()}, and renamed with {@link Options.Rename#OVERWRITE},
+ * which is atomic on HDFS and the local file system.
+ * file systems without a {@link FileContext} implementation fall back to delete and rename.
+ * with backups, previous versions are kept as "name.1" (latest) to "name.N", "name.1" being a copy.<br>
+ */
+final class HadoopOutput implements TargetOutput {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileSystem fs;
+    private final Path target;
+    private final Path temp;
+    private final FSDataOutputStream out;
+    private final int backups;
+
+    // buffered writer over the stream, created on first use
+    private Writer writer = null;
+
+    private boolean done = false;
+
+    // flushed, synced and closed, not renamed yet
+    private boolean synced = false;
+
+    /**
+     * Create the temporary file next to the target
+     * @param fs file system of the target, not closed by this output
+     * @param target file to replace
+     * @param backups number of previous versions to keep
+     * @param replication replication of the file, 0 for the file system default
+     * @param blockSize block size of the file, 0 for the file system default
+     */
+    HadoopOutput(FileSystem fs, Path target, int backups, short replication, long blockSize) throws IOException {
+        this.fs = fs;
+        this.target = target;
+        this.backups = backups;
+        this.temp = new Path(target.getParent(), "." + target.getName() + "."
+                + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+        this.out = fs.create(this.temp, false, BUFFER_SIZE,
+                replication > 0 ? replication : fs.getDefaultReplication(target),
+                blockSize > 0 ? blockSize : fs.getDefaultBlockSize(target));
+    }
+
+    @Override
+    public synchronized Writer writer() {
+        if (this.writer == null) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(this.out, CHARSET),
+                    BUFFER_SIZE);
+        }
+        return this.writer;
+    }
+
+    /**
+     * Flush and sync the temporary file, the target is not replaced yet
+     */
+    @Override
+    public synchronized void sync() throws IOException {
+        if (this.done || this.synced) {
+            return;
+        }
+        boolean ok = false;
+        try {
+            if (this.writer != null) {
+                this.writer.flush();
+            }
+            this.out.hsync();
+            this.out.close();
+            ok = true;
+        } finally {
+            if (!ok) {
+                abort();
+            }
+        }
+        this.synced = true;
+    }
+
+    /**
+     * Flush and sync the temporary file, keep a backup of the target if enabled, and rename over the target.<br>
+     * on failure the target is left as it was and the temporary file is removed.
+     */
+    @Override
+    public synchronized void commit() throws IOException {
+        if (this.done) {
+            return;
+        }
+        sync();
+        this.done = true;
+        boolean renamed = false;
+        try {
+            if (this.backups > 0 && this.fs.exists(this.target)) {
+                rotate();
+            }
+            rename();
+            renamed = true;
+        } finally {
+            if (!renamed) {
+                this.fs.delete(this.temp, false);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void abort() {
+        if (this.done) {
+            return;
+        }
+        this.done = true;
+        try {
+            this.out.close();
+            this.fs.delete(this.temp, false);
+        } catch (IOException e) {
+            System.err.println("[WARNING] can't delete temporary file : " + this.temp);
+        }
+    }
+
+    @Override
+    public long targetLength() throws IOException {
+        try {
+            return this.fs.getFileStatus(this.target).getLen();
+        } catch (FileNotFoundException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public InputStream openTarget() throws IOException {
+        return this.fs.open(this.target);
+    }
+
+    private void rename() throws IOException {
+        FileContext context;
+        try {
+            context = FileContext.getFileContext(this.fs.getUri(), this.fs.getConf());
+        } catch (UnsupportedFileSystemException e) {
+            // readers may miss the file between delete and rename
+            this.fs.delete(this.target, false);
+            if (!this.fs.rename(this.temp, this.target)) {
+                throw new IOException("can't rename " + this.temp + " to " + this.target);
+            }
+            return;
+        }
+        context.rename(this.temp, this.target, Options.Rename.OVERWRITE);
+    }
+
+    /**
+     * Shift the backups and copy the current target as "name.1", the target itself stays in place
+     */
+    private void rotate() throws IOException {
+        Path oldest = backup(this.backups);
+        if (this.fs.exists(oldest) && !this.fs.delete(oldest, false)) {
+            System.err.println("[WARNING] can't delete old backup : " + oldest);
+        }
+        for (int i = this.backups - 1; i >= 1; i--) {
+            Path from = backup(i);
+            if (this.fs.exists(from)) {
+                this.fs.rename(from, backup(i + 1));
+            }
+        }
+        FileUtil.copy(this.fs, this.target, this.fs, backup(1), false, this.fs.getConf());
+    }
+
+    private Path backup(int i) {
+        return new Path(this.target.getParent(), this.target.getName() + "." + i);
+    }
+}
@@ -0,0 +1,52 @@
+package com.skplanet.nlp.writer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * Output of one configuration file, replacing the target as a whole on {@link #commit()}<br>
+ */
+interface TargetOutput {
+
+    /**
+     * charset of every configuration file written, entries are escaped to ASCII and only headers may need more
+     */
+    Charset CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * Get a buffered writer, in {@link #CHARSET}
+     * @return writer
+     */
+    Writer writer();
+
+    /**
+     * Flush and sync the output, without replacing the target yet.<br>
+     * on failure the output is discarded.
+     */
+    void sync() throws IOException;
+
+    /**
+     * Make the output durable and replace the target with it.<br>
+     * on failure the target is left as it was.
+     */
+    void commit() throws IOException;
+
+    /**
+     * Discard the output, the target is left as it was
+     */
+    void abort();
+
+    /**
+     * Get the length of the current target
+     * @return length in bytes, -1 if the target doesn't exist
+     */
+    long targetLength() throws IOException;
+
+    /**
+     * Open the current target for reading
+     * @return input stream
+     */
+    InputStream openTarget() throws IOException;
+}
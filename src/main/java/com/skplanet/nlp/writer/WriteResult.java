@@ -0,0 +1,61 @@
+package com.skplanet.nlp.writer;
+
+/**
+ * Outcome of writing one configuration file with {@link ConfigWriter#writeAll()}<br>
+ */
+public class WriteResult {
+
+    private final String path;
+
+    // false if the file already had the same contents and was left untouched
+    private final boolean changed;
+
+    // null on success
+    private final Throwable error;
+
+    WriteResult(String path, boolean changed, Throwable error) {
+        this.path = path;
+        this.changed = changed;
+        this.error = error;
+    }
+
+    /**
+     * Get the canonical path of the configuration file
+     * @return canonical path
+     */
+    public String getPath() {
+        return this.path;
+    }
+
+    /**
+     * Check whether the file was written, or left as it was because its contents are the same
+     * @return true if the file was written
+     */
+    public boolean isChanged() {
+        return this.changed;
+    }
+
+    /**
+     * Check whether the file was written or found unchanged
+     * @return true on success
+     */
+    public boolean isSuccess() {
+        return this.error == null;
+    }
+
+    /**
+     * Get the failure cause
+     * @return failure cause, or null on success
+     */
+    public Throwable getError() {
+        return this.error;
+    }
+
+    @Override
+    public String toString() {
+        if (this.error != null) {
+            return this.path + " : failed, " + this.error;
+        }
+        return this.path + (this.changed ? " : written" : " : unchanged");
+    }
+}
@@ -0,0 +1,160 @@
+package com.skplanet.nlp.config;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Per-key diffs delivered to {@link ConfigChangeListener}, and coalescing of undelivered changes
+ */
+public class ConfigChangeListenerTest {
+
+    private File dir;
+    private File file;
+    private String fileName;
+    private Configuration conf;
+    private LinkedBlockingQueue<ConfigChangeEvent> events;
+
+    @Before
+    public void setUp() throws IOException {
+        this.dir = Files.createTempDirectory("listener").toFile();
+        this.file = new File(this.dir, "listened.properties");
+        this.fileName = this.file.getPath();
+        this.conf = Configuration.newInstance();
+        this.events = new LinkedBlockingQueue<ConfigChangeEvent>();
+        this.conf.addChangeListener(this.fileName, new ConfigChangeListener() {
+            @Override
+            public void onChange(ConfigChangeEvent event) {
+                events.add(event);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        this.conf.shutdown();
+        delete(this.dir);
+    }
+
+    @Test
+    public void eventHoldsAddedRemovedAndChangedFields() throws Exception {
+        load("a=1\nb=2\nc=3\n");
+        ConfigChangeEvent first = next();
+        assertEquals(map("a", "1", "b", "2", "c", "3"), first.getAdded());
+        assertTrue(first.getRemoved().isEmpty());
+        assertTrue(first.getChanged().isEmpty());
+
+        load("a=1\nb=20\nd=4\n");
+        ConfigChangeEvent second = next();
+        assertEquals(this.fileName, second.getPropName());
+        assertEquals(map("d", "4"), second.getAdded());
+        assertEquals(map("c", "3"), second.getRemoved());
+        assertEquals(map("b", "20"), second.getChanged());
+        assertEquals("2", second.getPreviousValue("b"));
+        assertTrue(second.affects("c"));
+        assertTrue(!second.affects("a"));
+    }
+
+    @Test
+    public void unchangedReloadIsNotDelivered() throws Exception {
+        load("a=1\n");
+        assertNotNull(next());
+        load("a=1\n");
+        assertNull(this.events.poll(300, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void undeliveredChangesAreCoalesced() throws Exception {
+        List<Runnable> held = holdDeliveries();
+        load("a=1\nb=1\n");
+        held.remove(0).run();
+        assertNotNull(this.events.poll());
+
+        // both reloads are done before the delivery runs
+        load("a=2\nb=1\n");
+        load("a=3\nb=1\nc=1\n");
+        assertEquals(1, held.size());
+        held.get(0).run();
+
+        ConfigChangeEvent event = this.events.poll();
+        assertNotNull(event);
+        assertEquals(map("a", "3"), event.getChanged());
+        assertEquals("1", event.getPreviousValue("a"));
+        assertEquals(map("c", "1"), event.getAdded());
+        assertNull(this.events.poll());
+    }
+
+    @Test
+    public void changesUndoneBeforeDeliveryAreDropped() throws Exception {
+        List<Runnable> held = holdDeliveries();
+        load("a=1\n");
+        held.remove(0).run();
+        assertNotNull(this.events.poll());
+
+        load("a=2\n");
+        load("a=1\n");
+        assertEquals(1, held.size());
+        held.get(0).run();
+        assertNull(this.events.poll());
+    }
+
+    /**
+     * Keep the deliveries instead of running them, the test runs them on its own thread
+     */
+    private List<Runnable> holdDeliveries() {
+        final List<Runnable> held = Collections.synchronizedList(new ArrayList<Runnable>());
+        this.conf.setListenerExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                held.add(command);
+            }
+        });
+        return held;
+    }
+
+    private void load(String contents) throws IOException {
+        Files.write(this.file.toPath(), contents.getBytes("UTF-8"));
+        this.conf.loadProperties(this.fileName, Configuration.PHYSICALPATH_LOAD);
+    }
+
+    private ConfigChangeEvent next() throws InterruptedException {
+        ConfigChangeEvent event = this.events.poll(10, TimeUnit.SECONDS);
+        assertNotNull(event);
+        return event;
+    }
+
+    private static Map<String, String> map(String... pairs) {
+        HashMap<String, String> map = new HashMap<String, String>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            map.put(pairs[i], pairs[i + 1]);
+        }
+        return map;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,126 @@
+package com.skplanet.nlp.config;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link ConfigReloader} debouncing and polling
+ */
+public class ConfigReloaderTest {
+
+    private File dir;
+    private Configuration conf;
+    private ConfigMetrics metrics;
+    private ConfigReloader reloader;
+
+    @Before
+    public void setUp() throws IOException {
+        this.dir = Files.createTempDirectory("reloader").toFile();
+        this.conf = Configuration.newInstance();
+        this.metrics = this.conf.enableMetrics(null);
+        this.reloader = new ConfigReloader(this.conf);
+    }
+
+    @After
+    public void tearDown() {
+        this.reloader.close();
+        this.conf.shutdown();
+        delete(this.dir);
+    }
+
+    @Test
+    public void burstOfEditsIsReloadedOnce() throws Exception {
+        File file = new File(this.dir, "burst.properties");
+        write(file, "version=0\n");
+        String fileName = file.getPath();
+        this.conf.loadProperties(fileName, Configuration.PHYSICALPATH_LOAD);
+
+        // watch events only, no polling during the test
+        this.reloader.setDebounce(300, TimeUnit.MILLISECONDS);
+        this.reloader.setPollInterval(1, TimeUnit.HOURS);
+        this.reloader.watch(fileName);
+        this.reloader.start();
+
+        for (int i = 1; i <= 5; i++) {
+            write(file, "version=" + i + "\n");
+            Thread.sleep(50);
+        }
+        awaitValue(fileName, "version", "5");
+        Thread.sleep(600);
+        assertEquals(Long.valueOf(2), this.metrics.getLoadCounts().get(fileName));
+    }
+
+    @Test
+    public void pollingCatchesChangesWithoutEvents() throws Exception {
+        // edits of the link target are not seen by the watch service on the link directory
+        File targetDir = new File(this.dir, "target");
+        File linkDir = new File(this.dir, "link");
+        if (!targetDir.mkdir() || !linkDir.mkdir()) {
+            throw new IOException("can't create directories in " + this.dir);
+        }
+        File target = new File(targetDir, "polled.properties");
+        File link = new File(linkDir, "polled.properties");
+        write(target, "version=1\n");
+        Files.createSymbolicLink(link.toPath(), target.toPath());
+        String fileName = link.getPath();
+        this.conf.loadProperties(fileName, Configuration.PHYSICALPATH_LOAD);
+
+        this.reloader.setDebounce(50, TimeUnit.MILLISECONDS);
+        this.reloader.setPollInterval(100, TimeUnit.MILLISECONDS);
+        this.reloader.watch(fileName);
+        this.reloader.start();
+
+        write(target, "version=22\n");
+        awaitValue(fileName, "version", "22");
+    }
+
+    @Test
+    public void malformedEditKeepsPreviousProperties() throws Exception {
+        File file = new File(this.dir, "broken.properties");
+        write(file, "version=1\n");
+        String fileName = file.getPath();
+        this.conf.loadProperties(fileName, Configuration.PHYSICALPATH_LOAD);
+
+        this.reloader.setDebounce(50, TimeUnit.MILLISECONDS);
+        this.reloader.setPollInterval(100, TimeUnit.MILLISECONDS);
+        this.reloader.watch(fileName);
+        this.reloader.start();
+
+        write(file, "version=\\u12\n");
+        Thread.sleep(500);
+        assertEquals("1", this.conf.readProperty(fileName, "version"));
+
+        write(file, "version=3\n");
+        awaitValue(fileName, "version", "3");
+    }
+
+    private void awaitValue(String fileName, String field, String expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!expected.equals(this.conf.readProperty(fileName, field)) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, this.conf.readProperty(fileName, field));
+    }
+
+    private static void write(File file, String contents) throws IOException {
+        Files.write(file.toPath(), contents.getBytes("UTF-8"));
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
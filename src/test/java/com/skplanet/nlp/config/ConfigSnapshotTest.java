@@ -0,0 +1,146 @@
+package com.skplanet.nlp.config;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link ConfigSnapshot} round trip and verification
+ */
+public class ConfigSnapshotTest {
+
+    private File dir;
+    private File snapshot;
+
+    @Before
+    public void setUp() throws IOException {
+        this.dir = Files.createTempDirectory("snapshot").toFile();
+        this.snapshot = new File(this.dir, "config.snap");
+    }
+
+    @After
+    public void tearDown() {
+        File[] children = this.dir.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                child.delete();
+            }
+        }
+        this.dir.delete();
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        Map<String, Properties> files = files();
+        ConfigSnapshot.write(files, this.snapshot);
+        Map<String, PropertySet> sets = ConfigSnapshot.read(this.snapshot);
+
+        assertEquals(files.keySet(), sets.keySet());
+        for (Map.Entry<String, Properties> file : files.entrySet()) {
+            Properties prop = file.getValue();
+            PropertySet set = sets.get(file.getKey());
+            String[] expected = prop.stringPropertyNames().toArray(new String[0]);
+            String[] names = set.names();
+            Arrays.sort(expected);
+            Arrays.sort(names);
+            assertArrayEquals(expected, names);
+            for (String name : expected) {
+                assertEquals(name, prop.getProperty(name), set.get(name));
+            }
+            assertNull(set.get("no.such.field"));
+        }
+    }
+
+    @Test
+    public void typedValuesAreCompiled() throws IOException {
+        ConfigSnapshot.write(files(), this.snapshot);
+        PropertySet set = ConfigSnapshot.read(this.snapshot).get("app");
+        assertEquals(Integer.valueOf(8080), set.parsed("port", ValueType.INT));
+        assertEquals(Long.valueOf(8080), set.parsed("port", ValueType.LONG));
+        assertEquals(Double.valueOf(0.75), set.parsed("ratio", ValueType.DOUBLE));
+        assertEquals(Boolean.TRUE, set.parsed("enabled", ValueType.BOOLEAN));
+        assertEquals("8080", set.get("port"));
+        assertEquals("on", set.get("enabled"));
+    }
+
+    @Test
+    public void loadedThroughConfiguration() throws IOException {
+        ConfigSnapshot.write(files(), this.snapshot);
+        Configuration conf = Configuration.newInstance();
+        try {
+            conf.loadSnapshot(this.snapshot.getPath());
+            assertEquals("가나다", conf.readProperty("app", "name"));
+            assertEquals(8080, conf.getInt("app", "port", 0));
+            assertEquals("value999", conf.readProperty("large", "key999"));
+        } finally {
+            conf.shutdown();
+        }
+    }
+
+    @Test
+    public void corruptedSnapshotIsRejected() throws IOException {
+        ConfigSnapshot.write(files(), this.snapshot);
+        RandomAccessFile raf = new RandomAccessFile(this.snapshot, "rw");
+        try {
+            long at = raf.length() - 3;
+            raf.seek(at);
+            int b = raf.read();
+            raf.seek(at);
+            raf.write(b ^ 0x01);
+        } finally {
+            raf.close();
+        }
+        try {
+            ConfigSnapshot.read(this.snapshot);
+            fail("read a corrupted snapshot");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("corrupted snapshot"));
+        }
+    }
+
+    @Test
+    public void otherFilesAreRejected() throws IOException {
+        Files.write(this.snapshot.toPath(), "a=1\nb=2\nc=3\nd=4\ne=5\nf=6\ng=7\n".getBytes("UTF-8"));
+        try {
+            ConfigSnapshot.read(this.snapshot);
+            fail("read a properties file as a snapshot");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("not a configuration snapshot"));
+        }
+    }
+
+    private static Map<String, Properties> files() {
+        Map<String, Properties> files = new LinkedHashMap<String, Properties>();
+        Properties app = new Properties();
+        app.setProperty("name", "가나다");
+        app.setProperty("port", "8080");
+        app.setProperty("ratio", "0.75");
+        app.setProperty("enabled", "on");
+        app.setProperty("empty", "");
+        app.setProperty("emoji😀", "😀");
+        files.put("app", app);
+
+        Properties large = new Properties();
+        for (int i = 0; i < 1000; i++) {
+            large.setProperty("key" + i, "value" + i);
+        }
+        files.put("large", large);
+        files.put("empty", new Properties());
+        return files;
+    }
+}
@@ -0,0 +1,121 @@
+package com.skplanet.nlp.config;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link Configuration#HDFSPATH_LOAD} with a local cache directory, against a local file system
+ */
+public class HdfsLocalCacheTest {
+
+    private File dir;
+    private File remote;
+    private File cacheDir;
+    private String fileName;
+
+    @Before
+    public void setUp() throws IOException {
+        this.dir = Files.createTempDirectory("hdfs-cache").toFile();
+        this.remote = new File(this.dir, "remote.properties");
+        this.cacheDir = new File(this.dir, "cache");
+        this.fileName = LocalHdfs.name(this.remote);
+    }
+
+    @After
+    public void tearDown() {
+        delete(this.dir);
+    }
+
+    @Test
+    public void servesLocalCopyThenRefreshesOnce() throws Exception {
+        write(this.remote, "version=1\n", 1000000L);
+        Configuration first = newConfiguration();
+        first.loadProperties(this.fileName, Configuration.HDFSPATH_LOAD);
+        assertEquals("1", first.readProperty(this.fileName, "version"));
+        first.shutdown();
+
+        // newer version on HDFS, the next start serves the local copy first
+        write(this.remote, "version=2\n", 2000000L);
+        Configuration second = newConfiguration();
+        ConfigMetrics metrics = second.enableMetrics(null);
+        final AtomicInteger changes = new AtomicInteger();
+        second.addChangeListener(this.fileName, new ConfigChangeListener() {
+            @Override
+            public void onChange(ConfigChangeEvent event) {
+                changes.incrementAndGet();
+            }
+        });
+        second.loadProperties(this.fileName, Configuration.HDFSPATH_LOAD);
+        assertEquals("1", second.readProperty(this.fileName, "version"));
+
+        // then picks up the HDFS version in the background, once
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!"2".equals(second.readProperty(this.fileName, "version"))
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("2", second.readProperty(this.fileName, "version"));
+        Thread.sleep(500);
+        assertEquals(2, changes.get());
+        // the local copy and a single check of HDFS
+        assertEquals(Long.valueOf(2), metrics.getLoadCounts().get(this.fileName));
+        assertEquals("2", second.readProperty(this.fileName, "version"));
+        second.shutdown();
+    }
+
+    @Test
+    public void keepsLocalCopyWhenHdfsFileIsGone() throws Exception {
+        write(this.remote, "version=1\n", 1000000L);
+        Configuration first = newConfiguration();
+        first.loadProperties(this.fileName, Configuration.HDFSPATH_LOAD);
+        first.shutdown();
+
+        if (!this.remote.delete()) {
+            throw new IOException("can't delete " + this.remote);
+        }
+        Configuration second = newConfiguration();
+        second.loadProperties(this.fileName, Configuration.HDFSPATH_LOAD);
+        Thread.sleep(500);
+        assertEquals("1", second.readProperty(this.fileName, "version"));
+        second.shutdown();
+    }
+
+    private Configuration newConfiguration() {
+        Configuration conf = Configuration.newInstance();
+        conf.setHadoopConfiguration(LocalHdfs.conf());
+        conf.setLocalCacheDir(this.cacheDir);
+        return conf;
+    }
+
+    private static void write(File file, String contents, long modified) throws IOException {
+        OutputStream os = new FileOutputStream(file);
+        try {
+            os.write(contents.getBytes("UTF-8"));
+        } finally {
+            os.close();
+        }
+        if (!file.setLastModified(modified)) {
+            throw new IOException("can't set modification time of " + file);
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,124 @@
+package com.skplanet.nlp.config;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link Interpolator} references, escapes, cycles and incremental resolution
+ */
+public class InterpolatorTest {
+
+    @Test
+    public void resolvesChainedReferences() throws IOException {
+        Map<String, String> resolved = Interpolator.resolve(
+                map("root", "/opt/app", "conf", "${root}/conf", "file", "${conf}/app.properties"), null, null);
+        assertEquals("/opt/app/conf", resolved.get("conf"));
+        assertEquals("/opt/app/conf/app.properties", resolved.get("file"));
+    }
+
+    @Test
+    public void leavesUnknownReferencesAndEscapes() throws IOException {
+        Map<String, String> resolved = Interpolator.resolve(
+                map("a", "1", "unknown", "${nope}/x", "escaped", "$${a} is ${a}", "open", "${a"), null, null);
+        assertEquals("${nope}/x", resolved.get("unknown"));
+        assertEquals("${a} is 1", resolved.get("escaped"));
+        assertEquals("${a", resolved.get("open"));
+    }
+
+    @Test
+    public void readsEnvironmentAndSystemProperties() throws IOException {
+        Map.Entry<String, String> env = System.getenv().entrySet().iterator().next();
+        System.setProperty("interpolator.test", "from-sys");
+        try {
+            Map<String, String> resolved = Interpolator.resolve(
+                    map("env", "${env:" + env.getKey() + "}", "sys", "<${sys:interpolator.test}>"), null, null);
+            assertEquals(env.getValue(), resolved.get("env"));
+            assertEquals("<from-sys>", resolved.get("sys"));
+        } finally {
+            System.clearProperty("interpolator.test");
+        }
+    }
+
+    @Test
+    public void cyclicReferencesFail() {
+        try {
+            Interpolator.resolve(map("a", "${b}", "b", "x${c}", "c", "${a}"), null, null);
+            fail("resolved a cycle");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("cyclic reference"));
+        }
+        try {
+            Interpolator.resolve(map("self", "${self}"), null, null);
+            fail("resolved a self reference");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("cyclic reference"));
+        }
+    }
+
+    @Test
+    public void reloadResolvesChangedFieldsAndTheirDependents() throws IOException {
+        Map<String, String> previousRaw = map("a", "1", "b", "${a}+", "c", "plain", "d", "${c}!");
+        Map<String, String> previousResolved = Interpolator.resolve(previousRaw, null, null);
+        // marks the values kept from the previous load
+        previousResolved.put("d", "kept");
+
+        Map<String, String> resolved = Interpolator.resolve(
+                map("a", "2", "b", "${a}+", "c", "plain", "d", "${c}!"), previousRaw, previousResolved);
+        assertEquals("2+", resolved.get("b"));
+        assertEquals("kept", resolved.get("d"));
+    }
+
+    @Test
+    public void reloadResolvesSystemReferencesAndRemovedTargets() throws IOException {
+        System.setProperty("interpolator.test", "1");
+        try {
+            Map<String, String> previousRaw = map("sys", "${sys:interpolator.test}", "gone", "x", "ref", "${gone}");
+            Map<String, String> previousResolved = Interpolator.resolve(previousRaw, null, null);
+            assertEquals("x", previousResolved.get("ref"));
+
+            System.setProperty("interpolator.test", "2");
+            Map<String, String> resolved = Interpolator.resolve(
+                    map("sys", "${sys:interpolator.test}", "ref", "${gone}"), previousRaw, previousResolved);
+            assertEquals("2", resolved.get("sys"));
+            assertEquals("${gone}", resolved.get("ref"));
+        } finally {
+            System.clearProperty("interpolator.test");
+        }
+    }
+
+    @Test
+    public void configurationServesResolvedValues() throws Exception {
+        File file = File.createTempFile("interpolated", ".properties");
+        Configuration conf = Configuration.newInstance();
+        try {
+            conf.setInterpolationEnabled(true);
+            Files.write(file.toPath(), "host=db1\nurl=jdbc://${host}/app\n".getBytes("UTF-8"));
+            conf.loadProperties(file.getPath(), Configuration.PHYSICALPATH_LOAD);
+            assertEquals("jdbc://db1/app", conf.readProperty(file.getPath(), "url"));
+
+            Files.write(file.toPath(), "host=db2\nurl=jdbc://${host}/app\n".getBytes("UTF-8"));
+            conf.loadProperties(file.getPath(), Configuration.PHYSICALPATH_LOAD);
+            assertEquals("jdbc://db2/app", conf.readProperty(file.getPath(), "url"));
+        } finally {
+            conf.shutdown();
+            file.delete();
+        }
+    }
+
+    private static Map<String, String> map(String... pairs) {
+        HashMap<String, String> map = new HashMap<String, String>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            map.put(pairs[i], pairs[i + 1]);
+        }
+        return map;
+    }
+}
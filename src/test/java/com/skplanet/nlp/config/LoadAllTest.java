@@ -0,0 +1,145 @@
+package com.skplanet.nlp.config;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link Configuration#loadAll(List, int)} results per file and single publish
+ */
+public class LoadAllTest {
+
+    private static final int FILES = 20;
+
+    private File dir;
+    private Configuration conf;
+
+    @Before
+    public void setUp() throws IOException {
+        this.dir = Files.createTempDirectory("load-all").toFile();
+        this.conf = Configuration.newInstance();
+    }
+
+    @After
+    public void tearDown() {
+        this.conf.shutdown();
+        delete(this.dir);
+    }
+
+    @Test
+    public void resultPerFileInRequestOrder() throws Exception {
+        String a = write("a.properties", "name=a\n");
+        String missing = new File(this.dir, "missing.properties").getPath();
+        String b = write("b.properties", "name=b\n");
+
+        List<LoadResult> results = this.conf.loadAll(Arrays.asList(
+                new LoadRequest(a, Configuration.PHYSICALPATH_LOAD),
+                new LoadRequest(missing, Configuration.PHYSICALPATH_LOAD),
+                new LoadRequest(b, Configuration.PHYSICALPATH_LOAD)), 2);
+
+        assertEquals(3, results.size());
+        assertEquals(a, results.get(0).getRequest().getFileName());
+        assertTrue(results.get(0).isSuccess());
+        assertNull(results.get(0).getError());
+        assertEquals(missing, results.get(1).getRequest().getFileName());
+        assertFalse(results.get(1).isSuccess());
+        assertNotNull(results.get(1).getError());
+        assertEquals(b, results.get(2).getRequest().getFileName());
+        assertTrue(results.get(2).isSuccess());
+
+        assertEquals("a", this.conf.readProperty(a, "name"));
+        assertEquals("b", this.conf.readProperty(b, "name"));
+    }
+
+    @Test
+    public void failedFileKeepsPreviousProperties() throws Exception {
+        String a = write("a.properties", "version=1\n");
+        String b = write("b.properties", "version=1\n");
+        this.conf.loadProperties(a, Configuration.PHYSICALPATH_LOAD);
+        if (!new File(a).delete()) {
+            throw new IOException("can't delete " + a);
+        }
+        write("b.properties", "version=2\n");
+
+        List<LoadResult> results = this.conf.loadAll(Arrays.asList(
+                new LoadRequest(a, Configuration.PHYSICALPATH_LOAD),
+                new LoadRequest(b, Configuration.PHYSICALPATH_LOAD)), 2);
+
+        assertFalse(results.get(0).isSuccess());
+        assertTrue(results.get(1).isSuccess());
+        assertEquals("1", this.conf.readProperty(a, "version"));
+        assertEquals("2", this.conf.readProperty(b, "version"));
+    }
+
+    @Test
+    public void readersNeverSeeAPartialReload() throws Exception {
+        final List<LoadRequest> requests = new ArrayList<LoadRequest>();
+        for (int i = 0; i < FILES; i++) {
+            requests.add(new LoadRequest(write("file" + i + ".properties", "version=0\n"),
+                    Configuration.PHYSICALPATH_LOAD));
+        }
+        this.conf.loadAll(requests, 4);
+
+        // in one pass over the files, a file of the new version is never followed by one of the old version
+        final AtomicBoolean done = new AtomicBoolean(false);
+        final AtomicReference<String> torn = new AtomicReference<String>();
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!done.get()) {
+                    int last = 0;
+                    for (LoadRequest request : requests) {
+                        int version = Integer.parseInt(conf.readProperty(request.getFileName(), "version"));
+                        if (version < last) {
+                            torn.compareAndSet(null, request.getFileName() + " at version " + version);
+                        }
+                        last = version;
+                    }
+                }
+            }
+        });
+        reader.start();
+        for (int version = 1; version <= 20; version++) {
+            for (int i = 0; i < FILES; i++) {
+                write("file" + i + ".properties", "version=" + version + "\n");
+            }
+            this.conf.loadAll(requests, 4);
+        }
+        done.set(true);
+        reader.join();
+
+        assertNull(torn.get());
+        assertEquals("20", this.conf.readProperty(requests.get(FILES - 1).getFileName(), "version"));
+    }
+
+    private String write(String name, String contents) throws IOException {
+        File file = new File(this.dir, name);
+        Files.write(file.toPath(), contents.getBytes("UTF-8"));
+        return file.getPath();
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
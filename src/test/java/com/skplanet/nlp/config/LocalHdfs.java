@@ -0,0 +1,48 @@
+package com.skplanet.nlp.config;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+
+import java.io.File;
+import java.net.URI;
+
+/**
+ * Local file system answering to "hdfs://local" URIs, so that {@link Configuration#HDFSPATH_LOAD}
+ * can be tested without a cluster.<br>
+ * "hdfs://local/tmp/a.properties" is the local file "/tmp/a.properties".<br>
+ */
+public class LocalHdfs extends RawLocalFileSystem {
+
+    static final String PREFIX = "hdfs://local";
+
+    private static final URI NAME = URI.create(PREFIX);
+
+    @Override
+    public URI getUri() {
+        return NAME;
+    }
+
+    @Override
+    protected void checkPath(Path path) {
+        // accept hdfs://local paths
+    }
+
+    /**
+     * Hadoop configuration mapping the "hdfs" scheme to this class
+     * @return Hadoop configuration
+     */
+    static org.apache.hadoop.conf.Configuration conf() {
+        org.apache.hadoop.conf.Configuration conf = new org.apache.hadoop.conf.Configuration();
+        conf.set("fs.hdfs.impl", LocalHdfs.class.getName());
+        return conf;
+    }
+
+    /**
+     * Get the "hdfs://local" name of a local file
+     * @param file local file
+     * @return file name to load with {@link Configuration#HDFSPATH_LOAD}
+     */
+    static String name(File file) {
+        return PREFIX + file.getAbsolutePath();
+    }
+}
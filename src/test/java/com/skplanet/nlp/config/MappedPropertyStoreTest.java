@@ -0,0 +1,129 @@
+package com.skplanet.nlp.config;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link MappedPropertyStore} against {@link Properties#load(Reader)} on the same file
+ */
+public class MappedPropertyStoreTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        this.file = File.createTempFile("mapped", ".properties");
+    }
+
+    @After
+    public void tearDown() {
+        this.file.delete();
+    }
+
+    @Test
+    public void separatorsAndComments() throws IOException {
+        check("# comment\n! other comment\na=1\nb:2\nc 3\n  d  =  4  \ne\nf=\n\n   \ng\t=\t5\n");
+    }
+
+    @Test
+    public void continuationLines() throws IOException {
+        check("list=one, \\\n    two, \\\n    three\nkey\\\n  continued=value\nend=last\\");
+        check("crlf=a\\\r\n  b\r\nnext=c\rcr=d\\\r  e\r");
+    }
+
+    @Test
+    public void escapes() throws IOException {
+        check("tab=a\\tb\nnewline=a\\nb\nreturn=a\\rb\nfeed=a\\fb\nslash=a\\\\b\nplain=\\q\\z\n"
+                + "key\\ with\\ spaces=v\nkey\\=eq=v\nkey\\:colon=v\n\\#not\\!comment=v\nlead=\\  space\n");
+    }
+
+    @Test
+    public void unicodeEscapesAndRawUtf8() throws IOException {
+        check("escaped=\\u00e9t\\u00E9\nkey\\u0041=A\nsurrogates=\\ud83d\\ude00\n"
+                + "raw=\u00e9t\u00e9 \uac00\ub098\n\uac00=korean key\nemoji=\ud83d\ude00\n");
+    }
+
+    @Test
+    public void laterDuplicateWins() throws IOException {
+        check("a=1\nb=2\na=3\n");
+        MappedPropertyStore store = store("a=1\nb=2\na=3\n");
+        assertEquals(2, store.size());
+        String[] names = store.names();
+        Arrays.sort(names);
+        assertArrayEquals(new String[]{"a", "b"}, names);
+        assertNull(store.get("c"));
+    }
+
+    @Test
+    public void malformedUnicodeEscapeFailsLikeProperties() throws IOException {
+        String contents = "a=1\nbad=\\u12\n";
+        try {
+            load(contents);
+            fail("Properties loaded a malformed escape");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            store(contents);
+            fail("loaded a malformed escape");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void emptyFile() throws IOException {
+        MappedPropertyStore store = store("");
+        assertEquals(0, store.size());
+        assertNull(store.get("a"));
+    }
+
+    /**
+     * Check that the store holds the same fields and values as {@link Properties}
+     */
+    private void check(String contents) throws IOException {
+        Properties expected = load(contents);
+        MappedPropertyStore store = store(contents);
+
+        Map<String, String> map = new HashMap<String, String>();
+        for (String name : expected.stringPropertyNames()) {
+            map.put(name, expected.getProperty(name));
+            assertEquals(name, expected.getProperty(name), store.get(name));
+        }
+        assertEquals(map, store.toMap());
+        assertEquals(map.size(), store.size());
+    }
+
+    private MappedPropertyStore store(String contents) throws IOException {
+        Files.write(this.file.toPath(), contents.getBytes("UTF-8"));
+        return MappedPropertyStore.open(this.file);
+    }
+
+    private Properties load(String contents) throws IOException {
+        Files.write(this.file.toPath(), contents.getBytes("UTF-8"));
+        Properties prop = new Properties();
+        Reader reader = new InputStreamReader(Files.newInputStream(this.file.toPath()), "UTF-8");
+        try {
+            prop.load(reader);
+        } finally {
+            reader.close();
+        }
+        return prop;
+    }
+}
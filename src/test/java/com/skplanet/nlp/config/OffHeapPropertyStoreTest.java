@@ -0,0 +1,134 @@
+package com.skplanet.nlp.config;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link OffHeapPropertyStore} lookups and in place views
+ */
+public class OffHeapPropertyStoreTest {
+
+    private static final String[] PAIRS = {
+            "ascii", "value",
+            "latin.\u00e9", "caf\u00e9",
+            "korean.\uac00\ub098", "\ub2e4\ub77c\ub9c8",
+            "emoji.\ud83d\ude00", "smile \ud83d\ude00",
+            "\ud83d\ude00", "supplementary key only",
+            "\ud83d\ude00\ud83d\ude01", "two supplementary characters",
+            "Aa", "same hash as BB",
+            "BB", "same hash as Aa",
+            "prefix", "short",
+            "prefix.longer", "long",
+            "empty", "",
+    };
+
+    @Test
+    public void getsEveryField() {
+        OffHeapPropertyStore store = store();
+        Map<String, String> expected = expected();
+        for (Map.Entry<String, String> entry : expected.entrySet()) {
+            assertEquals(entry.getKey(), entry.getValue(), store.get(entry.getKey()));
+        }
+        assertEquals(expected, store.toMap());
+        assertEquals(expected.size(), store.size());
+
+        String[] names = store.names();
+        String[] keys = expected.keySet().toArray(new String[0]);
+        Arrays.sort(names);
+        Arrays.sort(keys);
+        assertArrayEquals(keys, names);
+    }
+
+    @Test
+    public void missingFields() {
+        OffHeapPropertyStore store = store();
+        assertNull(store.get("missing"));
+        assertNull(store.get("prefi"));
+        assertNull(store.get("prefix.longer.still"));
+        assertNull(store.get("\ud83d\ude01"));
+        assertNull(store.get("\ud83d"));
+        assertNull(store.get("korean.\uac00"));
+        assertNull(store.bytes("missing"));
+        assertNull(store.chars("missing"));
+    }
+
+    @Test
+    public void bytesViewIsUtf8InPlace() throws Exception {
+        OffHeapPropertyStore store = store();
+        for (Map.Entry<String, String> entry : expected().entrySet()) {
+            ByteBuffer view = store.bytes(entry.getKey());
+            assertTrue(view.isReadOnly());
+            byte[] bytes = new byte[view.remaining()];
+            view.get(bytes);
+            assertArrayEquals(entry.getKey(), entry.getValue().getBytes("UTF-8"), bytes);
+        }
+    }
+
+    @Test
+    public void charsViewOfAsciiValues() {
+        OffHeapPropertyStore store = store();
+        CharSequence chars = store.chars("ascii");
+        assertFalse(chars instanceof String);
+        assertEquals(5, chars.length());
+        assertEquals('v', chars.charAt(0));
+        assertEquals("alu", chars.subSequence(1, 4).toString());
+        assertEquals("value", chars.toString());
+        assertEquals("", store.chars("empty").toString());
+
+        // decoded for the others
+        assertEquals("caf\u00e9", store.chars("latin.\u00e9").toString());
+        assertEquals("smile \ud83d\ude00", store.chars("emoji.\ud83d\ude00").toString());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void charsViewChecksBounds() {
+        store().chars("ascii").charAt(5);
+    }
+
+    @Test
+    public void configurationReadsOffHeap() throws Exception {
+        File file = File.createTempFile("offheap", ".properties");
+        Configuration conf = Configuration.newInstance();
+        try {
+            Files.write(file.toPath(), "ascii=value\nkorean.\\uac00=\\ub2e4\n".getBytes("UTF-8"));
+            conf.setOffHeapStorage(true);
+            conf.loadProperties(file.getPath(), Configuration.PHYSICALPATH_LOAD);
+            assertEquals("value", conf.readPropertyChars(file.getPath(), "ascii").toString());
+            assertEquals("\ub2e4", conf.readProperty(file.getPath(), "korean.\uac00"));
+            ByteBuffer bytes = conf.readPropertyBytes(file.getPath(), "korean.\uac00");
+            assertEquals(3, bytes.remaining());
+        } finally {
+            conf.shutdown();
+            file.delete();
+        }
+    }
+
+    private static OffHeapPropertyStore store() {
+        Properties prop = new Properties();
+        for (Map.Entry<String, String> entry : expected().entrySet()) {
+            prop.setProperty(entry.getKey(), entry.getValue());
+        }
+        return new OffHeapPropertyStore(new HashPropertyStore(prop));
+    }
+
+    private static Map<String, String> expected() {
+        HashMap<String, String> map = new HashMap<String, String>();
+        for (int i = 0; i < PAIRS.length; i += 2) {
+            map.put(PAIRS[i], PAIRS[i + 1]);
+        }
+        return map;
+    }
+}
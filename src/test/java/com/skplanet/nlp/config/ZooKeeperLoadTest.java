@@ -0,0 +1,158 @@
+package com.skplanet.nlp.config;
+
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.ZooDefs;
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.server.ServerCnxnFactory;
+import org.apache.zookeeper.server.ZooKeeperServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link Configuration#ZOOKEEPER_LOAD} against an embedded ZooKeeper server
+ */
+public class ZooKeeperLoadTest {
+
+    private File dir;
+    private ServerCnxnFactory factory;
+    private ZooKeeper client;
+    private String prefix;
+    private Configuration conf;
+
+    @Before
+    public void setUp() throws Exception {
+        this.dir = Files.createTempDirectory("zookeeper").toFile();
+        ZooKeeperServer server = new ZooKeeperServer(new File(this.dir, "snap"), new File(this.dir, "log"), 500);
+        this.factory = ServerCnxnFactory.createFactory(new InetSocketAddress("127.0.0.1", 0), 100);
+        this.factory.startup(server);
+        String connectString = "127.0.0.1:" + this.factory.getLocalPort();
+        this.prefix = ZooKeeperSource.PREFIX + connectString;
+
+        final CountDownLatch connected = new CountDownLatch(1);
+        this.client = new ZooKeeper(connectString, 5000, new Watcher() {
+            @Override
+            public void process(WatchedEvent event) {
+                if (event.getState() == Event.KeeperState.SyncConnected) {
+                    connected.countDown();
+                }
+            }
+        });
+        assertTrue(connected.await(10, TimeUnit.SECONDS));
+        this.client.create("/app", new byte[0], ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+
+        this.conf = Configuration.newInstance();
+        this.conf.setZooKeeperSessionTimeout(5, TimeUnit.SECONDS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        this.conf.shutdown();
+        this.client.close();
+        this.factory.shutdown();
+        delete(this.dir);
+    }
+
+    @Test
+    public void reloadsWhenZnodeChanges() throws Exception {
+        this.client.create("/app/conf", bytes("a=1\n"), ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+        String fileName = this.prefix + "/app/conf";
+        this.conf.loadProperties(fileName, Configuration.ZOOKEEPER_LOAD);
+        assertEquals("1", this.conf.readProperty(fileName, "a"));
+
+        this.client.setData("/app/conf", bytes("a=2\n"), -1);
+        awaitValue(fileName, "a", "2");
+    }
+
+    @Test
+    public void loadsZnodeCreatedLater() throws Exception {
+        String fileName = this.prefix + "/app/later";
+        try {
+            this.conf.loadProperties(fileName, Configuration.ZOOKEEPER_LOAD);
+            fail("loaded a missing znode");
+        } catch (NullPointerException e) {
+            // not there yet, watched for creation
+        }
+
+        this.client.create("/app/later", bytes("b=1\n"), ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+        awaitValue(fileName, "b", "1");
+    }
+
+    @Test
+    public void getResourceReadsZnode() throws Exception {
+        this.client.create("/app/res", bytes("c=1\n"), ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+        URL url = this.conf.getResource(this.prefix + "/app/res", Configuration.ZOOKEEPER_LOAD);
+        assertNotNull(url);
+
+        InputStream is = url.openStream();
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[256];
+            int n;
+            while ((n = is.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+            assertEquals("c=1\n", out.toString("UTF-8"));
+        } finally {
+            is.close();
+        }
+    }
+
+    @Test
+    public void unreachableEnsembleDelaysStartupOnce() throws Exception {
+        // nothing listens there : every load fails, only the first one waits for the connection
+        Configuration down = Configuration.newInstance();
+        down.setZooKeeperSessionTimeout(1, TimeUnit.SECONDS);
+        long begin = System.currentTimeMillis();
+        for (int i = 0; i < 5; i++) {
+            try {
+                down.loadProperties(ZooKeeperSource.PREFIX + "127.0.0.1:1/app/file" + i, Configuration.ZOOKEEPER_LOAD);
+                fail("loaded from an unreachable ensemble");
+            } catch (NullPointerException e) {
+                // no local copy to fall back to
+            }
+        }
+        long elapsed = System.currentTimeMillis() - begin;
+        down.shutdown();
+        assertTrue("took " + elapsed + " ms", elapsed < 3000);
+    }
+
+    private void awaitValue(String fileName, String field, String expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!expected.equals(this.conf.readProperty(fileName, field)) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, this.conf.readProperty(fileName, field));
+    }
+
+    private static byte[] bytes(String s) throws IOException {
+        return s.getBytes("UTF-8");
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
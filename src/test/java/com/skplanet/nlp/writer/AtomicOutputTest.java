@@ -0,0 +1,144 @@
+package com.skplanet.nlp.writer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * {@link AtomicOutput} replacement of the target and backup rotation
+ */
+public class AtomicOutputTest {
+
+    private File dir;
+    private File target;
+
+    @Before
+    public void setUp() throws IOException {
+        this.dir = Files.createTempDirectory("atomic").toFile();
+        this.target = new File(this.dir, "target.properties");
+    }
+
+    @After
+    public void tearDown() {
+        File[] children = this.dir.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                child.delete();
+            }
+        }
+        this.dir.delete();
+    }
+
+    @Test
+    public void targetIsReplacedOnCommitOnly() throws IOException {
+        write(this.target, "a=1\n");
+        AtomicOutput output = new AtomicOutput(this.target, 0);
+        Writer writer = output.writer();
+        writer.write("a=2\n");
+        writer.flush();
+        output.sync();
+        assertEquals("a=1\n", read(this.target));
+        assertEquals(2, this.dir.list().length);
+
+        output.commit();
+        assertEquals("a=2\n", read(this.target));
+        assertArrayEquals(new String[]{"target.properties"}, this.dir.list());
+    }
+
+    @Test
+    public void openReadersKeepThePreviousVersion() throws IOException {
+        write(this.target, "version=1\n");
+        InputStream reader = Files.newInputStream(this.target.toPath());
+        try {
+            AtomicOutput output = new AtomicOutput(this.target, 0);
+            output.writer().write("version=2, a longer one\n");
+            output.commit();
+
+            // renamed over, not rewritten in place
+            byte[] buffer = new byte[64];
+            int n = reader.read(buffer);
+            assertEquals("version=1\n", new String(buffer, 0, n, TargetOutput.CHARSET));
+        } finally {
+            reader.close();
+        }
+        assertEquals("version=2, a longer one\n", read(this.target));
+    }
+
+    @Test
+    public void abortLeavesTargetAsItWas() throws IOException {
+        write(this.target, "a=1\n");
+        AtomicOutput output = new AtomicOutput(this.target, 1);
+        output.writer().write("a=2\n");
+        output.sync();
+        output.abort();
+        // nothing left to commit
+        output.commit();
+
+        assertEquals("a=1\n", read(this.target));
+        assertArrayEquals(new String[]{"target.properties"}, this.dir.list());
+    }
+
+    @Test
+    public void newTargetIsCreated() throws IOException {
+        AtomicOutput output = new AtomicOutput(this.target, 2);
+        output.writer().write("a=1\n");
+        output.commit();
+        assertEquals("a=1\n", read(this.target));
+        assertEquals(4L, output.targetLength());
+
+        AtomicOutput missing = new AtomicOutput(new File(this.dir, "missing.properties"), 0);
+        assertEquals(-1L, missing.targetLength());
+        missing.abort();
+    }
+
+    @Test
+    public void backupsAreRotated() throws IOException {
+        for (int version = 1; version <= 4; version++) {
+            AtomicOutput output = new AtomicOutput(this.target, 2);
+            output.writer().write("version=" + version + "\n");
+            output.commit();
+        }
+        assertEquals("version=4\n", read(this.target));
+        assertEquals("version=3\n", read(new File(this.dir, "target.properties.1")));
+        assertEquals("version=2\n", read(new File(this.dir, "target.properties.2")));
+        assertFalse(new File(this.dir, "target.properties.3").exists());
+
+        String[] files = this.dir.list();
+        Arrays.sort(files);
+        assertArrayEquals(new String[]{"target.properties", "target.properties.1", "target.properties.2"}, files);
+    }
+
+    @Test
+    public void writerKeepsBackups() throws IOException {
+        ConfigWriter writer = ConfigWriter.newInstance();
+        writer.setBaseDir(this.dir.getPath());
+        writer.setBackupCount(1);
+        for (int version = 1; version <= 2; version++) {
+            writer.open("target.properties");
+            writer.addSingleConfig("target.properties", "version", String.valueOf(version));
+            writer.write("target.properties");
+            writer.close("target.properties");
+        }
+        assertEquals(Arrays.asList("version=2"), ConfigWriterTest.entries(this.target));
+        assertEquals(Arrays.asList("version=1"), ConfigWriterTest.entries(new File(this.dir, "target.properties.1")));
+    }
+
+    private static void write(File file, String contents) throws IOException {
+        Files.write(file.toPath(), contents.getBytes(TargetOutput.CHARSET));
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), TargetOutput.CHARSET);
+    }
+}
@@ -0,0 +1,192 @@
+package com.skplanet.nlp.writer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Stress test of {@link ConfigWriter} with several producer threads : no entry may be lost or torn
+ */
+public class ConcurrentWritingTest {
+
+    private static final int ENTRIES = 20000;
+    private static final int MAX_THREADS = 8;
+
+    private interface Producer {
+        void add(int thread, String field, String value);
+    }
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        this.dir = Files.createTempDirectory("concurrent").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        delete(this.dir);
+    }
+
+    @Test
+    public void sharedSortedFileIsIdenticalWhateverTheThreads() throws Exception {
+        byte[] reference = null;
+        for (int threads = 1; threads <= MAX_THREADS; threads *= 2) {
+            final ConfigWriter writer = newWriter();
+            writer.open("shared.properties", ConfigStream.Order.SORTED);
+            run(new Producer() {
+                @Override
+                public void add(int thread, String field, String value) {
+                    writer.addSingleConfig("shared.properties", field, value);
+                }
+            }, threads);
+            writer.write("shared.properties");
+            writer.closeAll();
+
+            File shared = new File(this.dir, "shared.properties");
+            check(shared, 0, ENTRIES);
+            byte[] bytes = Files.readAllBytes(shared.toPath());
+            if (reference == null) {
+                reference = bytes;
+            }
+            assertArrayEquals(threads + " threads", reference, bytes);
+        }
+    }
+
+    @Test
+    public void fileOfEachThreadHoldsItsEntries() throws Exception {
+        final int threads = MAX_THREADS;
+        final ConfigWriter writer = newWriter();
+        for (int t = 0; t < threads; t++) {
+            writer.open("part" + t + ".properties");
+        }
+        run(new Producer() {
+            @Override
+            public void add(int thread, String field, String value) {
+                writer.addSingleConfig("part" + thread + ".properties", field, value);
+            }
+        }, threads);
+        List<WriteResult> results = writer.writeAll(4, false);
+        for (WriteResult result : results) {
+            assertTrue(result.toString(), result.isSuccess());
+        }
+
+        int per = ENTRIES / threads;
+        for (int t = 0; t < threads; t++) {
+            int to = t == threads - 1 ? ENTRIES : (t + 1) * per;
+            check(new File(this.dir, "part" + t + ".properties"), t * per, to);
+        }
+    }
+
+    @Test
+    public void streamedFileHasNoTornEntries() throws Exception {
+        final ConfigWriter writer = newWriter();
+        writer.openStream("stream.properties", ConfigStream.Order.INSERTION);
+        run(new Producer() {
+            @Override
+            public void add(int thread, String field, String value) {
+                writer.addMultipleConfig("stream.properties", new String[]{field, field + ".copy"},
+                        new String[]{value, value});
+            }
+        }, MAX_THREADS);
+        writer.close("stream.properties");
+
+        Properties prop = load(new File(this.dir, "stream.properties"));
+        assertEquals(2 * ENTRIES, prop.size());
+        for (int i = 0; i < ENTRIES; i++) {
+            assertEquals("value" + i, prop.getProperty("field" + i));
+            assertEquals("value" + i, prop.getProperty("field" + i + ".copy"));
+        }
+    }
+
+    private ConfigWriter newWriter() {
+        // fresh writer, starting from empty files
+        ConfigWriter writer = ConfigWriter.newInstance();
+        writer.setBaseDir(this.dir.getPath());
+        return writer;
+    }
+
+    /**
+     * Add "field{i}=value{i}" for i in [0, ENTRIES), split among the given number of threads started at once
+     */
+    private static void run(final Producer producer, final int threads) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final int per = ENTRIES / threads;
+
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            Thread worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    int from = thread * per;
+                    int to = thread == threads - 1 ? ENTRIES : from + per;
+                    try {
+                        start.await();
+                        for (int i = from; i < to; i++) {
+                            producer.add(thread, "field" + i, "value" + i);
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        start.countDown();
+        done.await();
+        assertNull(failure.get());
+    }
+
+    /**
+     * Load the file back and check that it holds exactly the entries in [from, to)
+     */
+    private static void check(File file, int from, int to) throws IOException {
+        Properties prop = load(file);
+        assertEquals(file.getName(), to - from, prop.size());
+        for (int i = from; i < to; i++) {
+            assertEquals(file.getName(), "value" + i, prop.getProperty("field" + i));
+        }
+    }
+
+    private static Properties load(File file) throws IOException {
+        Properties prop = new Properties();
+        InputStream is = new FileInputStream(file);
+        try {
+            prop.load(is);
+        } finally {
+            is.close();
+        }
+        return prop;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,206 @@
+package com.skplanet.nlp.writer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link ConfigStream} escaping and sorted output
+ */
+public class ConfigStreamTest {
+
+    private static final String[] PAIRS = {
+            "plain", "value",
+            " leading space", "  leading spaces",
+            "inner space", "inner space",
+            "key=with:separators", "value=with:separators",
+            "#hash", "!bang",
+            "tab\tkey", "tab\tvalue\f",
+            "line\nbreak", "line\r\nbreak",
+            "back\\slash", "back\\slash\\",
+            "café", "가나다",
+            "emoji😀", "😀",
+            "control\u0001", "\u007f\u0000",
+            "empty", "",
+    };
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        this.dir = Files.createTempDirectory("stream").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] children = this.dir.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                child.delete();
+            }
+        }
+        this.dir.delete();
+    }
+
+    @Test
+    public void escapesAsPropertiesStore() throws IOException {
+        File file = new File(this.dir, "escaped.properties");
+        ConfigStream stream = new ConfigStream(file, ConfigStream.Order.INSERTION);
+        Properties prop = new Properties();
+        for (int i = 0; i < PAIRS.length; i += 2) {
+            stream.add(PAIRS[i], PAIRS[i + 1]);
+            prop.setProperty(PAIRS[i], PAIRS[i + 1]);
+        }
+        stream.close();
+
+        ByteArrayOutputStream stored = new ByteArrayOutputStream();
+        prop.store(stored, null);
+        assertEquals(new HashSet<String>(entries(stored.toByteArray())),
+                new HashSet<String>(entries(Files.readAllBytes(file.toPath()))));
+        assertEquals(prop, load(file));
+    }
+
+    @Test
+    public void sortedSpillsAndMergesRuns() throws IOException {
+        List<String> keys = new ArrayList<String>();
+        for (int i = 0; i < 500; i++) {
+            keys.add("key" + i);
+        }
+        Collections.shuffle(keys, new Random(42));
+
+        File inMemory = new File(this.dir, "memory.properties");
+        File spilled = new File(this.dir, "spilled.properties");
+        ConfigStream memoryStream = new ConfigStream(inMemory, ConfigStream.Order.SORTED);
+        ConfigStream spilledStream = new ConfigStream(spilled, ConfigStream.Order.SORTED);
+        spilledStream.setRunSize(7);
+        TreeMap<String, String> expected = new TreeMap<String, String>();
+        int n = 0;
+        for (String key : keys) {
+            // every tenth key is added again later with a new value, the last one wins
+            String value = "value" + n++;
+            memoryStream.add(key, value);
+            spilledStream.add(key, value);
+            expected.put(key, value);
+        }
+        for (int i = 0; i < keys.size(); i += 10) {
+            String value = "again" + i;
+            memoryStream.add(keys.get(i), value);
+            spilledStream.add(keys.get(i), value);
+            expected.put(keys.get(i), value);
+        }
+        memoryStream.close();
+        spilledStream.close();
+
+        List<String> lines = entries(Files.readAllBytes(spilled.toPath()));
+        List<String> sorted = new ArrayList<String>();
+        for (String key : expected.keySet()) {
+            sorted.add(key + "=" + expected.get(key));
+        }
+        assertEquals(sorted, lines);
+        assertArrayEquals(Files.readAllBytes(inMemory.toPath()), Files.readAllBytes(spilled.toPath()));
+
+        // runs are removed once merged
+        String[] left = this.dir.list();
+        Arrays.sort(left);
+        assertArrayEquals(new String[]{"memory.properties", "spilled.properties"}, left);
+    }
+
+    @Test
+    public void sortedEscapesAsPropertiesStore() throws IOException {
+        File file = new File(this.dir, "sorted.properties");
+        ConfigStream stream = new ConfigStream(file, ConfigStream.Order.SORTED);
+        stream.setRunSize(3);
+        Properties prop = new Properties();
+        for (int i = 0; i < PAIRS.length; i += 2) {
+            stream.add(PAIRS[i], PAIRS[i + 1]);
+            prop.setProperty(PAIRS[i], PAIRS[i + 1]);
+        }
+        stream.close();
+        assertEquals(prop, load(file));
+    }
+
+    @Test
+    public void headerComesFirst() throws IOException {
+        File file = new File(this.dir, "header.properties");
+        ConfigStream stream = new ConfigStream(file, ConfigStream.Order.SORTED);
+        stream.addHeader("first line\nsecond line");
+        stream.add("b", "2");
+        stream.add("a", "1");
+        stream.close();
+
+        String text = new String(Files.readAllBytes(file.toPath()), TargetOutput.CHARSET);
+        assertEquals("# first line\n# second line\na=1\nb=2\n", text);
+        assertEquals(2L, stream.getCount());
+    }
+
+    @Test
+    public void insertionKeepsDuplicates() throws IOException {
+        File file = new File(this.dir, "insertion.properties");
+        ConfigStream stream = new ConfigStream(file, ConfigStream.Order.INSERTION);
+        stream.add("b", "1");
+        stream.add("a", "2");
+        stream.add("b", "3");
+        stream.close();
+
+        assertEquals(Arrays.asList("b=1", "a=2", "b=3"), entries(Files.readAllBytes(file.toPath())));
+        assertEquals("3", load(file).getProperty("b"));
+    }
+
+    @Test
+    public void abortLeavesTargetAsItWas() throws IOException {
+        File file = new File(this.dir, "kept.properties");
+        Files.write(file.toPath(), "a=1\n".getBytes("ISO-8859-1"));
+        ConfigStream stream = new ConfigStream(file, ConfigStream.Order.SORTED);
+        stream.setRunSize(1);
+        stream.add("a", "2");
+        stream.add("b", "3");
+        stream.abort();
+
+        assertEquals(Collections.singletonList("a=1"), entries(Files.readAllBytes(file.toPath())));
+        assertEquals(1, this.dir.list().length);
+    }
+
+    /**
+     * Entry lines of a properties file, comments left out
+     */
+    private static List<String> entries(byte[] bytes) {
+        List<String> lines = new ArrayList<String>();
+        for (String line : new String(bytes, TargetOutput.CHARSET).split("\r?\n")) {
+            if (line.length() > 0 && !line.startsWith("#")) {
+                lines.add(line);
+            }
+        }
+        assertTrue(lines.size() > 0);
+        return lines;
+    }
+
+    private static Properties load(File file) throws IOException {
+        Properties prop = new Properties();
+        InputStream is = new FileInputStream(file);
+        try {
+            prop.load(is);
+        } finally {
+            is.close();
+        }
+        return prop;
+    }
+}
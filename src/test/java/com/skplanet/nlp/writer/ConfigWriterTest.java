@@ -0,0 +1,133 @@
+package com.skplanet.nlp.writer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link ConfigWriter} on files opened with {@link ConfigWriter#open(String, ConfigStream.Order)}, by name and through {@link ConfigFile}
+ */
+public class ConfigWriterTest {
+
+    private File dir;
+    private ConfigWriter writer;
+
+    @Before
+    public void setUp() throws IOException {
+        this.dir = Files.createTempDirectory("writer").toFile();
+        this.writer = ConfigWriter.newInstance();
+        this.writer.setBaseDir(this.dir.getPath());
+    }
+
+    @After
+    public void tearDown() {
+        delete(this.dir);
+    }
+
+    @Test
+    public void clearKeepsSortedOrder() throws Exception {
+        this.writer.open("sorted.properties", ConfigStream.Order.SORTED);
+        this.writer.addSingleConfig("sorted.properties", "b", "2");
+        this.writer.addSingleConfig("sorted.properties", "c", "3");
+        this.writer.clear("sorted.properties");
+        this.writer.addSingleConfig("sorted.properties", "a", "1");
+        this.writer.write("sorted.properties");
+        this.writer.close("sorted.properties");
+
+        assertEquals(Arrays.asList("a=1", "b=2", "c=3"), entries(new File(this.dir, "sorted.properties")));
+    }
+
+    @Test
+    public void handleResolvesTheCanonicalPathOnce() throws Exception {
+        File real = new File(this.dir, "real");
+        File other = new File(this.dir, "other");
+        if (!real.mkdir() || !other.mkdir()) {
+            throw new IOException("can't create directories in " + this.dir);
+        }
+        File link = new File(this.dir, "link");
+        Files.createSymbolicLink(link.toPath(), real.toPath());
+        this.writer.setBaseDir(link.getPath());
+
+        ConfigFile file = this.writer.file("sub/../handle.properties");
+        assertEquals(new File(real, "handle.properties").getCanonicalPath(), file.getPath());
+
+        // later names and handles resolve to the same path, even once the link moves
+        Files.delete(link.toPath());
+        Files.createSymbolicLink(link.toPath(), other.toPath());
+        assertEquals(file.getPath(), this.writer.file("sub/../handle.properties").getPath());
+
+        // until the base directory is set again
+        this.writer.setBaseDir(link.getPath());
+        assertEquals(new File(other, "handle.properties").getCanonicalPath(),
+                this.writer.file("sub/../handle.properties").getPath());
+    }
+
+    @Test
+    public void handleAndNameReachTheSameFile() throws Exception {
+        ConfigFile file = this.writer.file("shared.properties");
+        this.writer.open("shared.properties", ConfigStream.Order.SORTED);
+        file.addHeader("header");
+        file.add("b", "2");
+        this.writer.addSingleConfig("shared.properties", "a", "1");
+        file.addAll(new String[]{"c", "d"}, new String[]{"3", "4"});
+        file.write();
+        assertTrue(file.close());
+
+        File written = new File(this.dir, "shared.properties");
+        assertEquals(Arrays.asList("a=1", "b=2", "c=3", "d=4"), entries(written));
+        assertTrue(Files.readAllLines(written.toPath(), Charset.forName("UTF-8")).contains("# header"));
+    }
+
+    @Test
+    public void handleFollowsClearAndReopen() throws Exception {
+        ConfigFile file = this.writer.file("reopened.properties");
+        this.writer.open("reopened.properties");
+        file.add("a", "1");
+        // clear discards the output, the items stay
+        file.clear();
+        file.add("b", "2");
+        file.write();
+        assertTrue(file.close());
+        assertEquals(Arrays.asList("a=1", "b=2"), entries(new File(this.dir, "reopened.properties")));
+
+        this.writer.open("reopened.properties");
+        file.add("c", "3");
+        file.write();
+        assertTrue(file.close());
+        assertEquals(Arrays.asList("a=1", "b=2", "c=3"), entries(new File(this.dir, "reopened.properties")));
+    }
+
+    /**
+     * Read the entry lines of a file, comments left out
+     */
+    static List<String> entries(File file) throws IOException {
+        List<String> entries = new ArrayList<String>();
+        for (String line : Files.readAllLines(file.toPath(), Charset.forName("UTF-8"))) {
+            if (!line.startsWith("#") && !line.isEmpty()) {
+                entries.add(line);
+            }
+        }
+        return entries;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}